@@ -0,0 +1,125 @@
+/**
+ * Drives a vehicle around its track by following the progress field of the next checkpoint
+ * downhill. Each decision only samples the field at a few points, so it takes the same time
+ * anywhere on any track, and a race can have dozens of opponents.
+ */
+public class AIDriver implements VehicleController {
+
+    // How far ahead of the vehicle to look for the way to go (in pixels, and seconds of
+    // driving at the current speed).
+    private static final double LOOKAHEAD_DISTANCE = 30;
+    private static final double LOOKAHEAD_TIME = 0.2;
+    // How far apart to sample the field when finding its slope (in pixels).
+    private static final int SLOPE_RADIUS = 6;
+    // Turn when the way to go is further off than this (in radians).
+    private static final double STEER_DEADZONE = Math.toRadians(4);
+    // Drift through turns sharper than this, above the given speed. Vehicles turn on a fixed
+    // circle unless they drift, so slowing down alone doesn't tighten a turn.
+    private static final double DRIFT_ANGLE = Math.toRadians(50);
+    private static final double DRIFT_SPEED = 250;
+    // Turn around by backing up when the way to go is further behind than this, until it's
+    // ahead by less than the given angle.
+    private static final double TURN_AROUND_ANGLE = Math.toRadians(120);
+    private static final double TURNED_AROUND_ANGLE = Math.toRadians(60);
+    // Go the other way after being stuck below this speed (in pixels/second) for a while.
+    private static final double STUCK_SPEED = 15;
+    private static final int STUCK_TICKS = VehicleFleet.TICK_RATE * 3 / 4;
+    private static final int ESCAPE_TICKS = VehicleFleet.TICK_RATE * 3 / 4;
+    // Don't back up closer than this to a wall (in pixels).
+    private static final double REVERSE_CLEARANCE = 20;
+
+    private final ProgressField field;
+    private final WallDistanceField walls;
+    // Scratch space for the way to go.
+    private final double[] direction = new double[2];
+    private boolean turningAround;
+    private int stuckTicks;
+    private int escapeTicks;
+    private boolean escapeReversing;
+
+    /**
+     * Creates a driver for the given track.
+     *
+     * @param track the track to drive.
+     * @throws IllegalArgumentException if the track is too big to measure (see
+     * Track.getProgressField()).
+     */
+    public AIDriver(Track track) {
+        field = track.getProgressField();
+        if (field == null) {
+            throw new IllegalArgumentException("The track is too big for AI drivers.");
+        }
+        walls = track.getWallDistanceField();
+    }
+
+    @Override
+    public int getInput(VehicleFleet fleet, int car) {
+        double x = fleet.getX(car);
+        double y = fleet.getY(car);
+        double rotation = fleet.getRotation(car);
+        double velocity = fleet.getVelocity(car);
+        int checkpoint = field.getNextCheckpoint(fleet.getLastCheckpoint(car));
+
+        // Look ahead along the vehicle's heading, or at the vehicle itself if that's a wall.
+        // Don't look past a checkpoint, or the vehicle cuts the corner and misses it.
+        double lookahead = LOOKAHEAD_DISTANCE + Math.abs(velocity) * LOOKAHEAD_TIME;
+        int distance = field.getDistance(checkpoint, (int)Math.round(x), (int)Math.round(y));
+        if (distance != ProgressField.UNREACHABLE) {
+            lookahead = Math.min(lookahead, distance * field.getUnitLength() / 2);
+        }
+        if (!field.getDirection(checkpoint, x + Math.cos(rotation) * lookahead,
+        y - Math.sin(rotation) * lookahead, SLOPE_RADIUS, direction) &&
+        !field.getDirection(checkpoint, x, y, SLOPE_RADIUS, direction)) {
+            return VehicleInput.FORWARD;
+        }
+        // The screen's y-axis points down, but rotations turn counter-clockwise.
+        double error = Math.IEEEremainder(Math.atan2(-direction[1], direction[0]) - rotation,
+        2 * Math.PI);
+
+        if (Math.abs(error) > TURN_AROUND_ANGLE) {
+            turningAround = true;
+        } else if (Math.abs(error) < TURNED_AROUND_ANGLE) {
+            turningAround = false;
+        }
+        boolean reversing = turningAround;
+        if (escapeTicks > 0) {
+            escapeTicks--;
+            reversing = escapeReversing;
+        } else if (Math.abs(velocity) < STUCK_SPEED) {
+            // A vehicle pushing into a wall doesn't move, so go the other way for a while.
+            stuckTicks++;
+            if (stuckTicks > STUCK_TICKS) {
+                stuckTicks = 0;
+                escapeTicks = ESCAPE_TICKS;
+                escapeReversing = !reversing;
+                reversing = escapeReversing;
+            }
+        } else {
+            stuckTicks = 0;
+        }
+        int steer = error > 0 ? VehicleInput.LEFT : VehicleInput.RIGHT;
+        if (reversing && velocity > STUCK_SPEED) {
+            // Reversing only slows a vehicle down as fast as it speeds up, so brake first.
+            return VehicleInput.BRAKE | steer;
+        }
+        if (reversing) {
+            double behind = fleet.getBody().getSweepHalfLength() + REVERSE_CLEARANCE;
+            // Near a wall, turn forward instead, like the second point of a three-point turn.
+            if (walls.getDistance((int)(x - Math.cos(rotation) * behind),
+            (int)(y + Math.sin(rotation) * behind)) >= REVERSE_CLEARANCE) {
+                // Backing up turns the other way.
+                return VehicleInput.REVERSE |
+                (error > 0 ? VehicleInput.RIGHT : VehicleInput.LEFT);
+            }
+        }
+
+        int input = VehicleInput.FORWARD;
+        if (Math.abs(error) > STEER_DEADZONE) {
+            input |= steer;
+        }
+        if (Math.abs(error) > DRIFT_ANGLE && velocity > DRIFT_SPEED) {
+            input |= VehicleInput.BRAKE;
+        }
+        return input;
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * A single layer of the track stored as rows of bits, one bit per pixel. Overlap tests against
+ * a vehicle's collision mask are done 64 pixels at a time with a bitwise AND.
+ */
+public class BitLayer {
+
+    private final long[] words;
+    private final int wordsPerRow;
+    private final int width;
+    private final int height;
+
+    /**
+     * Creates an empty layer.
+     *
+     * @param width the width of the layer.
+     * @param height the height of the layer.
+     */
+    public BitLayer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + 63) / 64;
+        words = new long[wordsPerRow * height];
+    }
+
+    /**
+     * Sets the given pixel of the layer.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     */
+    public void set(int x, int y) {
+        words[y * wordsPerRow + (x >> 6)] |= 1L << (x & 63);
+    }
+
+    /**
+     * Checks whether the given pixel of the layer is set.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return whether the pixel is set.
+     */
+    public boolean get(int x, int y) {
+        return (words[y * wordsPerRow + (x >> 6)] >>> (x & 63) & 1) != 0;
+    }
+
+    /**
+     * Gets the index of the first word of the given row. Layers of the same size share the same
+     * row layout.
+     *
+     * @param y the y-coordinate of the row.
+     * @return the index of the row's first word.
+     */
+    int getRowStart(int y) {
+        return y * wordsPerRow;
+    }
+
+    /**
+     * Gets 64 pixels of a row, starting at any x-coordinate. Pixels outside the layer are unset.
+     *
+     * @param rowStart the index of the first word of the row.
+     * @param x the x-coordinate of the first pixel.
+     * @return the pixels, with the first pixel in the lowest bit.
+     */
+    long getBits(int rowStart, int x) {
+        int word = x >> 6;
+        int shift = x & 63;
+        long low = (word >= 0 && word < wordsPerRow) ? words[rowStart + word] : 0;
+        if (shift == 0) {
+            return low;
+        }
+        long high = (word + 1 >= 0 && word + 1 < wordsPerRow) ? words[rowStart + word + 1] : 0;
+        return (low >>> shift) | (high << (64 - shift));
+    }
+
+    /**
+     * Checks whether the given mask covers any set pixel of the layer.
+     *
+     * @param mask the collision mask.
+     * @param maskX the x-coordinate of the left edge of the mask.
+     * @param maskY the y-coordinate of the top edge of the mask.
+     * @return whether any covered pixel is set.
+     */
+    public boolean overlaps(CollisionMask mask, int maskX, int maskY) {
+        int firstRow = Math.max(0, -maskY);
+        int lastRow = Math.min(mask.getHeight(), height - maskY);
+        for (int row = firstRow; row < lastRow; row++) {
+            int rowStart = (maskY + row) * wordsPerRow;
+            for (int word = 0; word < mask.getWordsPerRow(); word++) {
+                long maskBits = mask.getWord(row, word);
+                if (maskBits != 0 && (maskBits & getBits(rowStart, maskX + word * 64)) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the last set pixel covered by the given mask, scanning row by row, left to right.
+     *
+     * @param mask the collision mask.
+     * @param maskX the x-coordinate of the left edge of the mask.
+     * @param maskY the y-coordinate of the top edge of the mask.
+     * @return the index of the pixel (y * width + x), or -1 if none is covered.
+     */
+    public int findLastOverlap(CollisionMask mask, int maskX, int maskY) {
+        int firstRow = Math.max(0, -maskY);
+        int lastRow = Math.min(mask.getHeight(), height - maskY);
+        for (int row = lastRow - 1; row >= firstRow; row--) {
+            int rowStart = (maskY + row) * wordsPerRow;
+            for (int word = mask.getWordsPerRow() - 1; word >= 0; word--) {
+                long maskBits = mask.getWord(row, word);
+                long overlap = maskBits & getBits(rowStart, maskX + word * 64);
+                if (maskBits != 0 && overlap != 0) {
+                    int x = maskX + word * 64 + 63 - Long.numberOfLeadingZeros(overlap);
+                    return (maskY + row) * width + x;
+                }
+            }
+        }
+        return -1;
+    }
+}
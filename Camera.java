@@ -6,6 +6,8 @@ public class Camera {
 
     private Track track;
     private Vehicle vehicle;
+    private GhostCar ghost;
+    private Vehicle[] opponents = new Vehicle[0];
 
     // Top left corner of screen.
     private double xPos;
@@ -16,8 +18,27 @@ public class Camera {
         this.vehicle = vehicle;
     }
 
+    /**
+     * Sets the ghost to draw along with the vehicle, in step with the vehicle's race.
+     * 
+     * @param ghost the ghost to draw (or null, for none).
+     */
+    public void setGhost(GhostCar ghost) {
+        this.ghost = ghost;
+    }
+
+    /**
+     * Sets the other vehicles to draw in the race.
+     * 
+     * @param opponents the opponents to draw.
+     */
+    public void setOpponents(Vehicle[] opponents) {
+        this.opponents = opponents;
+    }
+
     public void updatePosition() {
-        double[] vehiclePos = vehicle.getPosition();
+        // Follow the vehicle where it's drawn, between physics ticks.
+        double[] vehiclePos = vehicle.getDrawPosition();
 
         xPos = vehiclePos[0] - RacetrackGame.PANEL_WIDTH / 2.0;
         if (xPos < 0) {
@@ -38,7 +59,14 @@ public class Camera {
         Graphics2D bufGraphics = buf.createGraphics();
         bufGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, 
         RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        track.drawTrack(bufGraphics, (int)xPos, (int)yPos);
+        // Only the tiles of the track in view are drawn.
+        track.drawTrack(bufGraphics, (int)xPos, (int)yPos, buf.getWidth(), buf.getHeight());
+        if (ghost != null) {
+            ghost.drawGhost(bufGraphics, (int)xPos, (int)yPos, vehicle.getDrawTicks());
+        }
+        for (Vehicle opponent : opponents) {
+            opponent.drawVehicle(bufGraphics, (int)xPos, (int)yPos);
+        }
         vehicle.drawVehicle(bufGraphics, (int)xPos, (int)yPos);
         bufGraphics.dispose();
     }
@@ -0,0 +1,165 @@
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+
+/**
+ * A binary collision mask of a transformed vehicle, cropped to the pixels the vehicle covers.
+ * Mask coordinates are relative to the pixel the vehicle is centered on, so the same mask can
+ * be placed anywhere on the track without rasterizing it again.
+ * 
+ * Each row is stored as 64-bit words, with the leftmost pixel of a word in its lowest bit,
+ * matching the layout of {@link BitLayer}.
+ */
+public class CollisionMask {
+
+    private final long[] rows;
+    private final int wordsPerRow;
+    private final int width;
+    private final int height;
+
+    // Top left corner of the mask, relative to the vehicle's center.
+    private final int offsetX;
+    private final int offsetY;
+    // Distance from the vehicle's center to its furthest pixel.
+    private final double radius;
+
+    /**
+     * Rasterizes the given mask with the given transform, and crops it to the covered pixels.
+     *
+     * @param mask the binary mask of the vehicle.
+     * @param xform the transform from mask coordinates to coordinates relative to the vehicle's
+     * center.
+     */
+    public CollisionMask(BufferedImage mask, AffineTransform xform) {
+        Rectangle region = xform.createTransformedShape(
+            new Rectangle(0, 0, mask.getWidth(), mask.getHeight())).getBounds();
+        region.grow(1, 1);
+
+        // Shift the vehicle so the top left corner of the region lands on the buffer origin.
+        BufferedImage buffer = new BufferedImage(region.width, region.height,
+        BufferedImage.TYPE_BYTE_GRAY);
+        AffineTransform local = AffineTransform.getTranslateInstance(-region.x, -region.y);
+        local.concatenate(xform);
+        Graphics2D graphics = buffer.createGraphics();
+        graphics.drawRenderedImage(mask, local);
+        graphics.dispose();
+
+        // Find the pixels actually covered by the vehicle.
+        byte[] pixels = ((DataBufferByte)buffer.getRaster().getDataBuffer()).getData();
+        int minX = region.width;
+        int minY = region.height;
+        int maxX = -1;
+        int maxY = -1;
+        for (int y = 0; y < region.height; y++) {
+            for (int x = 0; x < region.width; x++) {
+                if (pixels[y * region.width + x] != 0) {
+                    minX = Math.min(minX, x);
+                    minY = Math.min(minY, y);
+                    maxX = Math.max(maxX, x);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+        }
+        if (maxX < 0) {
+            // Empty mask.
+            minX = 0;
+            minY = 0;
+        }
+
+        width = maxX - minX + 1;
+        height = maxY - minY + 1;
+        offsetX = region.x + minX;
+        offsetY = region.y + minY;
+        wordsPerRow = (width + 63) / 64;
+        rows = new long[wordsPerRow * height];
+        double maxRadius = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (pixels[(minY + y) * region.width + minX + x] != 0) {
+                    rows[y * wordsPerRow + (x >> 6)] |= 1L << (x & 63);
+                    maxRadius = Math.max(maxRadius, Math.hypot(offsetX + x, offsetY + y));
+                }
+            }
+        }
+        radius = maxRadius;
+    }
+
+    /**
+     * Checks whether the vehicle covers the given pixel of the mask.
+     *
+     * @param x the x-coordinate, relative to the left edge of the mask.
+     * @param y the y-coordinate, relative to the top edge of the mask.
+     * @return whether the pixel is covered by the vehicle.
+     */
+    public boolean contains(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return false;
+        }
+        return (rows[y * wordsPerRow + (x >> 6)] >>> (x & 63) & 1) != 0;
+    }
+
+    /**
+     * Gets the distance from the vehicle's center pixel to the furthest pixel of the mask.
+     *
+     * @return the radius of the mask, in pixels.
+     */
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Gets the number of 64-bit words in each row of the mask.
+     *
+     * @return the words per row.
+     */
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Gets 64 pixels of a row of the mask.
+     *
+     * @param row the row of the mask.
+     * @param word the index of the word within the row.
+     * @return the pixels, with the leftmost pixel in the lowest bit.
+     */
+    public long getWord(int row, int word) {
+        return rows[row * wordsPerRow + word];
+    }
+
+    /**
+     * Gets the width of the mask.
+     *
+     * @return the mask width.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the mask.
+     *
+     * @return the mask height.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the x-offset of the left edge of the mask from the vehicle's center.
+     *
+     * @return the x-offset of the mask.
+     */
+    public int getOffsetX() {
+        return offsetX;
+    }
+
+    /**
+     * Gets the y-offset of the top edge of the mask from the vehicle's center.
+     *
+     * @return the y-offset of the mask.
+     */
+    public int getOffsetY() {
+        return offsetY;
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Handles collisions between the vehicles of a fleet and the walls of its track: detecting
+ * them, backing each vehicle out to where it first hit the wall, and sliding it along the wall
+ * with the rest of its movement.
+ *
+ * A resolver keeps its own scratch space, so it never allocates, but it can only handle one
+ * vehicle at a time.
+ */
+public class CollisionResolver {
+
+    // Scratch space, reused for every collision.
+    private final double[] lastMove = new double[3];
+    private final double[] initPos = new double[3];
+    private final double[] freePos = new double[3];
+    private final double[] normal = new double[2];
+    private final SweepQuery sweepQuery = new SweepQuery();
+
+    /**
+     * Handles a vehicle's potential collisions with the track. Does nothing if the vehicle
+     * hasn't moved since its collisions were last handled.
+     *
+     * @param fleet the fleet of the vehicle.
+     * @param car the index of the vehicle.
+     */
+    public void manageCollisions(VehicleFleet fleet, int car) {
+        if (!fleet.collisionsPending[car]) {
+            return;
+        }
+        fleet.collisionsPending[car] = false;
+        if (checkCollisions(fleet, car)) {
+            // Take damage from impact.
+            double impactSpeed = fleet.getSpeed(car);
+            // If collision occurs, see if the vehicle can slip off the wall a bit.
+            boolean canSlip = escapeCollision(fleet, car);
+            if (canSlip) {
+                fleet.totVel[car] *= VehicleFleet.SLIDE_SPEED_PER_TICK;
+                fleet.rotVel[car] = 0;
+            } else {
+                fleet.totVel[car] = 0;
+                if (impactSpeed > VehicleFleet.MIN_DAMAGE_SPEED) {
+                    fleet.health[car] -= impactSpeed * VehicleFleet.DAMAGE_MULTIPLIER;
+                    if (fleet.health[car] < 0) {
+                        fleet.health[car] = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a vehicle is colliding with a wall, and records the pits and checkpoints
+     * it's touching.
+     *
+     * @param fleet the fleet of the vehicle.
+     * @param car the index of the vehicle.
+     * @return whether the vehicle is colliding.
+     */
+    private boolean checkCollisions(VehicleFleet fleet, int car) {
+        FootprintScan scan = fleet.scanFootprint(car);
+        // If vehicle is touching repair pit, store state!
+        fleet.atRepairPit[car] = scan.hasPitContact();
+        // If vehicle crosses checkpoint, we'll keep track of it.
+        if (scan.getLastCheckpoint() != -1) {
+            fleet.lastCheckpointReached[car] = scan.getLastCheckpoint();
+        }
+        // If hitting a wall or going outside the track, we are colliding!
+        if (scan.hasWallContact()) {
+            return true;
+        }
+        // A fast vehicle may have jumped over a thin wall since its last position.
+        fleet.getLastMovement(car, lastMove);
+        if (lastMove[0] == 0 && lastMove[1] == 0 && lastMove[2] == 0) {
+            return false;
+        }
+        initPos[0] = fleet.xLastPos[car];
+        initPos[1] = fleet.yLastPos[car];
+        initPos[2] = fleet.rotation[car] - lastMove[2];
+        return sweepWalls(fleet, car, initPos) != -1;
+    }
+
+    /**
+     * Checks whether a vehicle's current position overlaps a wall or the track boundaries.
+     *
+     * @param fleet the fleet of the vehicle.
+     * @param car the index of the vehicle.
+     * @return whether the vehicle is inside a wall.
+     */
+    private boolean isInsideWall(VehicleFleet fleet, int car) {
+        Track track = fleet.getTrack();
+        CollisionMask mask = fleet.getCollisionMask(car);
+        int centerX = fleet.getCenterX(car);
+        int centerY = fleet.getCenterY(car);
+        // Skip the pixel test when every wall is out of the vehicle's reach.
+        if (track.getWallDistanceField().getDistance(centerX, centerY) > mask.getRadius()) {
+            return false;
+        }
+        return track.getLayer(Track.LAYER_WALL).overlaps(mask,
+        centerX + mask.getOffsetX(), centerY + mask.getOffsetY());
+    }
+
+    /**
+     * Checks whether a vehicle passed through a wall moving from the given pose to its current
+     * one, even if neither pose overlaps the wall.
+     *
+     * @param fleet the fleet of the vehicle.
+     * @param car the index of the vehicle.
+     * @param from the pose the movement started from {x, y, rotation}.
+     * @return the index of the wall segment hit (or -1, if the path is clear).
+     */
+    private int sweepWalls(VehicleFleet fleet, int car, double[] from) {
+        Track track = fleet.getTrack();
+        VehicleBody body = fleet.getBody();
+        double moved = Math.hypot(fleet.xPos[car] - from[0], fleet.yPos[car] - from[1]);
+        // Skip the sweep when every wall is out of reach of the whole movement.
+        if (track.getWallDistanceField().getDistance(fleet.getCenterX(car),
+        fleet.getCenterY(car)) > fleet.getCollisionMask(car).getRadius() + moved + 1) {
+            return -1;
+        }
+        return sweepQuery.sweep(track.getWallGeometry(), from[0], from[1], from[2],
+        fleet.xPos[car], fleet.yPos[car], fleet.rotation[car], body.getSweepHalfLength(),
+        body.getSweepHalfWidth());
+    }
+
+    /**
+     * Moves a vehicle to the given fraction of the way along its last movement.
+     *
+     * @param fleet the fleet of the vehicle.
+     * @param car the index of the vehicle.
+     * @param start the position the movement started from {x, y, rotation}.
+     * @param move the last movement {deltaX, deltaY, deltaRot}.
+     * @param fraction how far along the movement to move, from 0 to 1.
+     */
+    private static void moveAlong(VehicleFleet fleet, int car, double[] start, double[] move,
+    double fraction) {
+        fleet.xPos[car] = start[0] + move[0] * fraction;
+        fleet.yPos[car] = start[1] + move[1] * fraction;
+        fleet.rotation[car] = start[2] + move[2] * fraction;
+    }
+
+    /**
+     * Calculates the normal of the wall a vehicle is overlapping, pointing out of the wall.
+     *
+     * @param fleet the fleet of the vehicle.
+     * @param car the index of the vehicle.
+     * @param normal receives the unit normal {x, y}.
+     * @return whether a normal was found.
+     */
+    private static boolean getContactNormal(VehicleFleet fleet, int car, double[] normal) {
+        Track track = fleet.getTrack();
+        CollisionMask mask = fleet.getCollisionMask(car);
+        int contact = track.getLayer(Track.LAYER_WALL).findLastOverlap(mask,
+        fleet.getCenterX(car) + mask.getOffsetX(), fleet.getCenterY(car) + mask.getOffsetY());
+        if (contact == -1) {
+            return false;
+        }
+        return track.getWallDistanceField().getNormal(contact % track.getWidth(),
+        contact / track.getWidth(), normal);
+    }
+
+    /**
+     * Attempts to remove a vehicle from a collision, and reports if the vehicle is sliding
+     * against the wall.
+     *
+     * @param fleet the fleet of the vehicle.
+     * @param car the index of the vehicle.
+     * @return if the vehicle slid against the wall.
+     */
+    private boolean escapeCollision(VehicleFleet fleet, int car) {
+        fleet.getLastMovement(car, lastMove);
+        double totalDistance = Math.sqrt(lastMove[0] * lastMove[0] + lastMove[1] * lastMove[1]);
+        if (totalDistance == 0 && lastMove[2] == 0) {
+            return false;
+        }
+        initPos[0] = fleet.xLastPos[car];
+        initPos[1] = fleet.yLastPos[car];
+        initPos[2] = fleet.lastRotation[car];
+
+        // Find the last position along the last movement that doesn't collide.
+        // The start of the movement is free and the end collides, so bisect between them
+        // until the gap is under a pixel, measuring rotation by how far the corners swing.
+        VehicleBody body = fleet.getBody();
+        double cornerRadius = Math.hypot(body.getLength(), body.getWidth()) / 2;
+        double sweptDistance = totalDistance + Math.abs(lastMove[2]) * cornerRadius;
+        double freeFraction = 0;
+        double blockedFraction = 1;
+        while ((blockedFraction - freeFraction) * sweptDistance > 1) {
+            double midFraction = (freeFraction + blockedFraction) / 2;
+            moveAlong(fleet, car, initPos, lastMove, midFraction);
+            if (isInsideWall(fleet, car) || sweepWalls(fleet, car, initPos) != -1) {
+                blockedFraction = midFraction;
+            } else {
+                freeFraction = midFraction;
+            }
+        }
+
+        // Get the wall's normal where the vehicle first hits it.
+        moveAlong(fleet, car, initPos, lastMove, blockedFraction);
+        boolean hasNormal = getContactNormal(fleet, car, normal);
+        if (!hasNormal) {
+            // Fast enough to be stopped by the sweep alone, so use the wall segment it hit.
+            int segment = sweepWalls(fleet, car, initPos);
+            if (segment != -1) {
+                fleet.getTrack().getWallGeometry().getNormal(segment, lastMove[0], lastMove[1],
+                normal);
+                hasNormal = true;
+            }
+        }
+        moveAlong(fleet, car, initPos, lastMove, freeFraction);
+        if (!hasNormal) {
+            return false;
+        }
+
+        // Slide the rest of the movement along the wall, dropping the part going into it.
+        double remainingX = lastMove[0] * (1 - freeFraction);
+        double remainingY = lastMove[1] * (1 - freeFraction);
+        double intoWall = Math.min(0, remainingX * normal[0] + remainingY * normal[1]);
+        double slideX = remainingX - intoWall * normal[0];
+        double slideY = remainingY - intoWall * normal[1];
+        if (slideX == 0 && slideY == 0) {
+            return false;
+        }
+        freePos[0] = fleet.xPos[car];
+        freePos[1] = fleet.yPos[car];
+        freePos[2] = fleet.rotation[car];
+        fleet.xPos[car] += slideX;
+        fleet.yPos[car] += slideY;
+        if (isInsideWall(fleet, car) || sweepWalls(fleet, car, freePos) != -1) {
+            fleet.xPos[car] -= slideX;
+            fleet.yPos[car] -= slideY;
+            return false;
+        }
+        return true;
+    }
+}
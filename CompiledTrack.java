@@ -0,0 +1,378 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A track compiled ahead of time, so loading it needs no image decoding and none of the
+ * generated fields need computing again. The track file stays the source of truth: a compiled
+ * track records the last modified time and size of the track file it was compiled from, and is
+ * ignored once the track file changes.
+ *
+ * Compiled tracks are little-endian throughout. They start with the magic string "TRKC", the
+ * version (int), the track file's last modified time and size (longs), the width, height and
+ * checkpoint count (ints) and the number of sections (int). A table of sections follows, each
+ * as its type, offset and length (int, long, long), then the sections themselves, each starting
+ * on an 8 byte boundary:
+ *
+ * SECTION_TERRAIN: the terrain grid, one byte per pixel, row by row.
+ * SECTION_WALL_DISTANCE: the wall distance field, one short per pixel, row by row.
+ * SECTION_PROGRESS: the progress field's shift (int), and the length of each sector (ints,
+ * one per checkpoint), then the distances to each checkpoint in turn, one short per pixel.
+ *
+ * Only the terrain is required. Sections are mapped straight from the file, so the distance
+ * fields are read from the page cache as they're used instead of being copied. Mappings can't
+ * be closed, and last until the track using them is garbage collected; until then, Windows
+ * won't let the file be replaced, so tracks shouldn't be compiled while the game has them open.
+ *
+ * Each distance field must fit in a single buffer, so compiled tracks have at most
+ * MAX_PIXEL_COUNT pixels.
+ */
+public class CompiledTrack {
+
+    public static final String EXTENSION = ".trackc";
+
+    public static final int SECTION_TERRAIN = 1;
+    public static final int SECTION_WALL_DISTANCE = 2;
+    public static final int SECTION_PROGRESS = 3;
+    // The most pixels a compiled track may have, so a distance field fits in one buffer.
+    public static final long MAX_PIXEL_COUNT = Integer.MAX_VALUE / 2;
+
+    private static final char[] MAGIC = {'T', 'R', 'K', 'C'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 * 4;
+    private static final int SECTION_ENTRY_SIZE = 4 + 8 + 8;
+    private static final int SECTION_ALIGNMENT = 8;
+
+    private final int width;
+    private final int height;
+    private final int checkpointCount;
+    private final byte[] terrainGrid;
+    private final WallDistanceField wallDistance;
+    private final ProgressField progressField;
+
+    /**
+     * Opens a compiled track, checking that it was compiled from the current version of a track
+     * file.
+     *
+     * @param file the path to the compiled track.
+     * @param track the path to the track file it was compiled from.
+     * @throws IOException if the file can't be read, isn't a valid compiled track, or is older
+     * than the track file.
+     */
+    public CompiledTrack(Path file, Path track) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            for (char magic : MAGIC) {
+                if (header.get() != magic) {
+                    throw new IOException("The provided compiled track is invalid.");
+                }
+            }
+            if (header.getInt() != VERSION) {
+                throw new IOException("The track was compiled by a different version.");
+            }
+            if (header.getLong() != Files.getLastModifiedTime(track).toMillis() ||
+            header.getLong() != Files.size(track)) {
+                throw new IOException("The track has changed since it was compiled.");
+            }
+            width = header.getInt();
+            height = header.getInt();
+            checkpointCount = header.getInt();
+            int sectionCount = header.getInt();
+            if (width <= 0 || height <= 0 || checkpointCount < 0 ||
+            checkpointCount > Track.MAX_CHECKPOINTS || sectionCount < 0) {
+                throw new IOException("The provided compiled track is invalid.");
+            }
+            long pixels = (long)width * height;
+            if (pixels > MAX_PIXEL_COUNT) {
+                throw new IOException("The provided compiled track is too big.");
+            }
+
+            byte[] terrain = null;
+            WallDistanceField distance = null;
+            ProgressField progress = null;
+            ByteBuffer table = map(channel, HEADER_SIZE, (long)sectionCount * SECTION_ENTRY_SIZE);
+            for (int i = 0; i < sectionCount; i++) {
+                int type = table.getInt();
+                long offset = table.getLong();
+                long length = table.getLong();
+                if (type == SECTION_TERRAIN) {
+                    checkLength(length, pixels);
+                    // The physics reads the terrain as an array, so it's copied once.
+                    terrain = new byte[(int)pixels];
+                    map(channel, offset, length).get(terrain);
+                } else if (type == SECTION_WALL_DISTANCE) {
+                    checkLength(length, pixels * 2);
+                    distance = new WallDistanceField(map(channel, offset, length).asShortBuffer(),
+                    width, height);
+                } else if (type == SECTION_PROGRESS) {
+                    progress = readProgressField(channel, offset, length);
+                }
+                // Sections of unknown types are skipped.
+            }
+            if (terrain == null) {
+                throw new IOException("The compiled track has no terrain.");
+            }
+            terrainGrid = terrain;
+            wallDistance = distance;
+            progressField = progress;
+        }
+    }
+
+    /**
+     * Reads the progress field section, mapping each checkpoint's distances.
+     *
+     * @param channel the compiled track.
+     * @param offset where the section starts.
+     * @param length the length of the section.
+     * @return the progress field.
+     * @throws IOException if the file can't be read or the section is invalid.
+     */
+    private ProgressField readProgressField(FileChannel channel, long offset, long length)
+    throws IOException {
+        int fieldCount = Math.max(1, checkpointCount);
+        long pixels = (long)width * height;
+        int headerSize = 4 + 4 * fieldCount;
+        checkLength(length, headerSize + pixels * 2 * fieldCount);
+        ByteBuffer header = map(channel, offset, headerSize);
+        int shift = header.getInt();
+        int[] sectorLengths = new int[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            sectorLengths[i] = header.getInt();
+        }
+        // Each checkpoint's distances are mapped on their own, so no mapping is too big.
+        ShortBuffer[] distances = new ShortBuffer[fieldCount];
+        long fieldOffset = offset + headerSize;
+        for (int i = 0; i < fieldCount; i++) {
+            distances[i] = map(channel, fieldOffset, pixels * 2).asShortBuffer();
+            fieldOffset += pixels * 2;
+        }
+        return new ProgressField(width, height, shift, sectorLengths, distances);
+    }
+
+    /**
+     * Maps part of a file, read-only and little-endian.
+     *
+     * @param channel the file.
+     * @param offset where the part starts.
+     * @param length the length of the part.
+     * @return the mapped part.
+     * @throws IOException if the part isn't in the file, or can't be mapped.
+     */
+    private static ByteBuffer map(FileChannel channel, long offset, long length)
+    throws IOException {
+        if (offset < 0 || length < 0 || length > Integer.MAX_VALUE ||
+        offset + length > channel.size()) {
+            throw new IOException("The provided compiled track is incomplete.");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Checks that a section is as long as expected.
+     *
+     * @param length the length of the section.
+     * @param expected the expected length.
+     * @throws IOException if the lengths differ.
+     */
+    private static void checkLength(long length, long expected) throws IOException {
+        if (length != expected) {
+            throw new IOException("The provided compiled track is invalid.");
+        }
+    }
+
+    /**
+     * Gets where a track's compiled track is kept: next to it, with the extension EXTENSION.
+     *
+     * @param track the path to the track file.
+     * @return the path to the compiled track.
+     */
+    public static Path getDefaultPath(Path track) {
+        String name = track.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return track.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + EXTENSION);
+    }
+
+    /**
+     * Compiles a loaded track into a file.
+     *
+     * @param track the track, loaded from the track file.
+     * @param trackFile the path to the track file.
+     * @param file the path to write the compiled track to.
+     * @param fields whether to include the wall distance and progress fields. The progress
+     * field is left out of tracks too big to measure (see Track.getProgressField()).
+     * @throws IOException if the track is too big or has too many checkpoints, or the file
+     * can't be written (on Windows, that includes while the game has it open).
+     */
+    public static void compile(Track track, Path trackFile, Path file, boolean fields)
+    throws IOException {
+        int width = track.getWidth();
+        int height = track.getHeight();
+        long pixels = (long)width * height;
+        if (pixels > MAX_PIXEL_COUNT) {
+            throw new IOException("Compiled tracks may have at most " + MAX_PIXEL_COUNT +
+            " pixels.");
+        }
+        if (track.getCheckpointCount() > Track.MAX_CHECKPOINTS) {
+            throw new IOException("Tracks may have at most " + Track.MAX_CHECKPOINTS +
+            " checkpoints.");
+        }
+        // Without the fields, the track doesn't need measuring.
+        ProgressField progress = fields ? track.getProgressField() : null;
+        int fieldCount = progress != null ? progress.getCheckpointCount() : 0;
+        int progressHeaderSize = 4 + 4 * fieldCount;
+
+        int sectionCount = !fields ? 1 : progress == null ? 2 : 3;
+        int[] types = {SECTION_TERRAIN, SECTION_WALL_DISTANCE, SECTION_PROGRESS};
+        long[] lengths = {pixels, pixels * 2, progressHeaderSize + pixels * 2 * fieldCount};
+        long[] offsets = new long[sectionCount];
+        long offset = HEADER_SIZE + (long)sectionCount * SECTION_ENTRY_SIZE;
+        for (int i = 0; i < sectionCount; i++) {
+            offset = align(offset);
+            offsets[i] = offset;
+            offset += lengths[i];
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = allocate(HEADER_SIZE + sectionCount * SECTION_ENTRY_SIZE);
+            for (char magic : MAGIC) {
+                header.put((byte)magic);
+            }
+            header.putInt(VERSION);
+            header.putLong(Files.getLastModifiedTime(trackFile).toMillis());
+            header.putLong(Files.size(trackFile));
+            header.putInt(width);
+            header.putInt(height);
+            header.putInt(track.getCheckpointCount());
+            header.putInt(sectionCount);
+            for (int i = 0; i < sectionCount; i++) {
+                header.putInt(types[i]);
+                header.putLong(offsets[i]);
+                header.putLong(lengths[i]);
+            }
+            write(channel, header, 0);
+
+            write(channel, ByteBuffer.wrap(track.getTerrainGrid()), offsets[0]);
+            ByteBuffer distances = fields ? allocate((int)(pixels * 2)) : null;
+            if (fields) {
+                track.getWallDistanceField().write(distances.asShortBuffer());
+                write(channel, distances, offsets[1]);
+            }
+            if (progress != null) {
+                ByteBuffer progressHeader = allocate(progressHeaderSize);
+                progressHeader.putInt(progress.getShift());
+                for (int checkpoint = 1; checkpoint <= fieldCount; checkpoint++) {
+                    progressHeader.putInt(progress.getSectorLength(checkpoint));
+                }
+                write(channel, progressHeader, offsets[2]);
+                long fieldOffset = offsets[2] + progressHeaderSize;
+                for (int checkpoint = 1; checkpoint <= fieldCount; checkpoint++) {
+                    distances.clear();
+                    progress.write(checkpoint, distances.asShortBuffer());
+                    write(channel, distances, fieldOffset);
+                    fieldOffset += pixels * 2;
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Rounds an offset up to the next section boundary.
+     *
+     * @param offset the offset.
+     * @return the aligned offset.
+     */
+    private static long align(long offset) {
+        return (offset + SECTION_ALIGNMENT - 1) / SECTION_ALIGNMENT * SECTION_ALIGNMENT;
+    }
+
+    /**
+     * Allocates a little-endian buffer.
+     *
+     * @param size the size of the buffer.
+     * @return the buffer.
+     */
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes the whole of a buffer to a file, from its start.
+     *
+     * @param channel the file.
+     * @param buffer the buffer to write, filled from its start.
+     * @param position where to write it in the file.
+     * @throws IOException if the file can't be written.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer, long position)
+    throws IOException {
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Gets the width of the track.
+     *
+     * @return the width, in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the track.
+     *
+     * @return the height, in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the number of checkpoints on the track.
+     *
+     * @return the checkpoint count.
+     */
+    public int getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * Gets the terrain grid of the track.
+     *
+     * @return the terrain grid, row by row.
+     */
+    public byte[] getTerrainGrid() {
+        return terrainGrid;
+    }
+
+    /**
+     * Gets the wall distance field of the track.
+     *
+     * @return the wall distance field (or null, if it wasn't compiled in).
+     */
+    public WallDistanceField getWallDistanceField() {
+        return wallDistance;
+    }
+
+    /**
+     * Gets the progress field of the track.
+     *
+     * @return the progress field (or null, if it wasn't compiled in).
+     */
+    public ProgressField getProgressField() {
+        return progressField;
+    }
+}
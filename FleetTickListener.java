@@ -0,0 +1,14 @@
+/**
+ * Told when every vehicle of a fleet has finished a physics tick (see
+ * VehicleFleet.setTickEndListener()), such as to follow a race tick by tick.
+ */
+public interface FleetTickListener {
+
+    /**
+     * Called once every vehicle has moved in a tick, on the thread updating the fleet (even if
+     * the fleet is ticked in parallel).
+     *
+     * @param tick the tick, counting from 0.
+     */
+    void tickEnded(long tick);
+}
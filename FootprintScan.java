@@ -0,0 +1,148 @@
+/**
+ * Gathers everything the vehicle needs to know about the terrain beneath it (terrain counts,
+ * wall and pit contact, and checkpoints crossed) in a single pass over its collision mask.
+ *
+ * The last scan is remembered, so scanning the same footprint again is free.
+ */
+public class FootprintScan {
+
+    private int grassCount;
+    private int trackCount;
+    private int boostCount;
+    private boolean wallContact;
+    private boolean pitContact;
+    private int lastCheckpoint;
+
+    // The footprint of the last scan.
+    private Track scannedTrack;
+    private CollisionMask scannedMask;
+    private int scannedX;
+    private int scannedY;
+
+    /**
+     * Scans the terrain beneath the given mask. Does nothing if this footprint was the last one
+     * scanned.
+     *
+     * @param track the track to scan.
+     * @param mask the collision mask of the vehicle.
+     * @param maskX the x-coordinate of the left edge of the mask.
+     * @param maskY the y-coordinate of the top edge of the mask.
+     */
+    public void scan(Track track, CollisionMask mask, int maskX, int maskY) {
+        if (track == scannedTrack && mask == scannedMask &&
+        maskX == scannedX && maskY == scannedY) {
+            return;
+        }
+        scannedTrack = track;
+        scannedMask = mask;
+        scannedX = maskX;
+        scannedY = maskY;
+
+        grassCount = 0;
+        trackCount = 0;
+        boostCount = 0;
+        wallContact = false;
+        pitContact = false;
+        int lastCheckpointPixel = -1;
+
+        BitLayer wall = track.getLayer(Track.LAYER_WALL);
+        BitLayer drive = track.getLayer(Track.LAYER_TRACK);
+        BitLayer boost = track.getLayer(Track.LAYER_BOOST);
+        BitLayer grass = track.getLayer(Track.LAYER_GRASS);
+        BitLayer pit = track.getLayer(Track.LAYER_PIT);
+        BitLayer checkpoint = track.getLayer(Track.LAYER_CHECKPOINT);
+
+        // If every wall is further away than the furthest pixel of the vehicle, the wall layer
+        // can't overlap the footprint.
+        boolean nearWall = track.getWallDistanceField().getDistance(maskX - mask.getOffsetX(), 
+        maskY - mask.getOffsetY()) <= mask.getRadius();
+
+        // Every layer shares the same row layout, so one row offset works for all of them.
+        int firstRow = Math.max(0, -maskY);
+        int lastRow = Math.min(mask.getHeight(), track.getHeight() - maskY);
+        for (int row = firstRow; row < lastRow; row++) {
+            int rowStart = wall.getRowStart(maskY + row);
+            for (int word = 0; word < mask.getWordsPerRow(); word++) {
+                long maskBits = mask.getWord(row, word);
+                if (maskBits == 0) {
+                    continue;
+                }
+                int x = maskX + word * 64;
+                grassCount += Long.bitCount(maskBits & grass.getBits(rowStart, x));
+                trackCount += Long.bitCount(maskBits & drive.getBits(rowStart, x));
+                boostCount += Long.bitCount(maskBits & boost.getBits(rowStart, x));
+                if (nearWall) {
+                    wallContact |= (maskBits & wall.getBits(rowStart, x)) != 0;
+                }
+                pitContact |= (maskBits & pit.getBits(rowStart, x)) != 0;
+
+                // Later pixels win, so keep the rightmost checkpoint pixel of each word.
+                long checkpointBits = maskBits & checkpoint.getBits(rowStart, x);
+                if (checkpointBits != 0) {
+                    lastCheckpointPixel = (maskY + row) * track.getWidth() + x + 63 -
+                    Long.numberOfLeadingZeros(checkpointBits);
+                }
+            }
+        }
+
+        lastCheckpoint = -1;
+        if (lastCheckpointPixel != -1) {
+            lastCheckpoint = Track.getCheckpointIndex(track.getTerrainClass(
+            lastCheckpointPixel % track.getWidth(), lastCheckpointPixel / track.getWidth()));
+        }
+    }
+
+    /**
+     * Gets the number of covered pixels driven at grass speed.
+     *
+     * @return the grass pixel count.
+     */
+    public int getGrassCount() {
+        return grassCount;
+    }
+
+    /**
+     * Gets the number of covered pixels driven at full speed.
+     *
+     * @return the track pixel count.
+     */
+    public int getTrackCount() {
+        return trackCount;
+    }
+
+    /**
+     * Gets the number of covered boost pixels.
+     *
+     * @return the boost pixel count.
+     */
+    public int getBoostCount() {
+        return boostCount;
+    }
+
+    /**
+     * Gets whether the footprint touches a wall or the edge of the track.
+     *
+     * @return whether the vehicle is colliding.
+     */
+    public boolean hasWallContact() {
+        return wallContact;
+    }
+
+    /**
+     * Gets whether the footprint touches a repair pit.
+     *
+     * @return whether the vehicle is at a repair pit.
+     */
+    public boolean hasPitContact() {
+        return pitContact;
+    }
+
+    /**
+     * Gets the last checkpoint under the footprint, scanning row by row, left to right.
+     *
+     * @return the checkpoint index (or -1, if no checkpoint is covered).
+     */
+    public int getLastCheckpoint() {
+        return lastCheckpoint;
+    }
+}
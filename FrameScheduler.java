@@ -0,0 +1,210 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a game loop to a target frame rate, timed with System.nanoTime(). Waiting for the next
+ * frame sleeps while there's plenty of time left, then spins for the last stretch, since a
+ * sleep can overshoot by a millisecond or more. How long sleeps really take is measured as the
+ * loop runs, so it spins no longer than it needs to on this machine.
+ *
+ * Also records how long recent frames took, for frame pacing stats.
+ */
+public class FrameScheduler {
+
+    // How many recent frame times are kept for the stats.
+    public static final int HISTORY_LENGTH = 1024;
+
+    // How long each sleep asks for (in nanoseconds). Short sleeps let the wait stop sleeping
+    // close to the deadline.
+    private static final long SLEEP_NANOS = 1_000_000;
+    // Sleeps are assumed to take this long until some have been measured (in nanoseconds).
+    private static final double INITIAL_SLEEP_ESTIMATE = 2_000_000;
+    // How quickly the sleep estimate follows new measurements (0 to 1).
+    private static final double ESTIMATE_WEIGHT = 0.05;
+    // When catching up, the most frames to run back to back before giving up on the lost time.
+    private static final int MAX_CATCH_UP_FRAMES = 5;
+
+    private long frameNanos;
+    private boolean catchUp;
+    // When the next frame is due to start.
+    private long nextFrameTime;
+    // When the last frame started.
+    private long lastFrameTime;
+
+    // The running mean and variance of how long sleeps take, in nanoseconds.
+    private double sleepMean = INITIAL_SLEEP_ESTIMATE;
+    private double sleepVariance;
+
+    // Recent frame times, in nanoseconds, as a ring.
+    private final long[] frameTimes = new long[HISTORY_LENGTH];
+    private long frameCount;
+    private long skippedFrames;
+
+    /**
+     * Creates a scheduler for the given frame rate. Late frames are skipped rather than caught
+     * up.
+     *
+     * @param fps the target frame rate, in frames per second (or 0, for as fast as possible).
+     */
+    public FrameScheduler(double fps) {
+        setTargetFps(fps);
+        catchUp = false;
+        lastFrameTime = System.nanoTime();
+        nextFrameTime = lastFrameTime;
+    }
+
+    /**
+     * Sets the target frame rate. Takes effect from the next frame.
+     *
+     * @param fps the target frame rate, in frames per second (or 0, for as fast as possible).
+     */
+    public void setTargetFps(double fps) {
+        frameNanos = fps > 0 ? Math.round(1e9 / fps) : 0;
+    }
+
+    /**
+     * Gets the target frame rate.
+     *
+     * @return the target frame rate, in frames per second (or 0, if uncapped).
+     */
+    public double getTargetFps() {
+        return frameNanos == 0 ? 0 : 1e9 / frameNanos;
+    }
+
+    /**
+     * Sets what happens when a frame runs late. Catching up runs the next frames back to back
+     * until the loop is on schedule again (up to a few frames), so the average frame rate holds.
+     * Skipping drops the frames that were missed, and times the next frames from the late one.
+     *
+     * @param catchUp whether to catch up late frames (or skip them).
+     */
+    public void setCatchUp(boolean catchUp) {
+        this.catchUp = catchUp;
+    }
+
+    /**
+     * Waits until the next frame is due, and starts it. Should run once per frame, at the
+     * same point in the loop.
+     */
+    public void waitForNextFrame() {
+        long now = System.nanoTime();
+        if (frameNanos == 0) {
+            nextFrameTime = now;
+        } else {
+            nextFrameTime += frameNanos;
+            long lateNanos = now - nextFrameTime;
+            long missedFrames = lateNanos / frameNanos;
+            if (lateNanos > 0 && (!catchUp || missedFrames >= MAX_CATCH_UP_FRAMES)) {
+                // Start the late frame now, and time the next ones from here. Any whole frames
+                // that were missed are dropped.
+                nextFrameTime = now;
+                skippedFrames += missedFrames;
+            }
+            waitUntil(nextFrameTime);
+            now = System.nanoTime();
+        }
+        frameTimes[(int)(frameCount % HISTORY_LENGTH)] = now - lastFrameTime;
+        frameCount++;
+        lastFrameTime = now;
+    }
+
+    /**
+     * Sleeps, then spins, until the given time.
+     *
+     * @param deadline the time to wait until, from System.nanoTime().
+     */
+    private void waitUntil(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        // Sleep while even a slow sleep would end before the deadline.
+        while (remaining > sleepMean + Math.sqrt(sleepVariance)) {
+            long sleepStart = System.nanoTime();
+            LockSupport.parkNanos(SLEEP_NANOS);
+            long sleepEnd = System.nanoTime();
+            updateSleepEstimate(sleepEnd - sleepStart);
+            remaining = deadline - sleepEnd;
+        }
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Adds a measured sleep to the running estimate of how long sleeps take.
+     *
+     * @param sleepNanos how long the sleep took, in nanoseconds.
+     */
+    private void updateSleepEstimate(long sleepNanos) {
+        double difference = sleepNanos - sleepMean;
+        sleepMean += ESTIMATE_WEIGHT * difference;
+        sleepVariance = (1 - ESTIMATE_WEIGHT) * (sleepVariance +
+        ESTIMATE_WEIGHT * difference * difference);
+    }
+
+    /**
+     * Gets the number of frames started.
+     *
+     * @return the frame count.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Gets the number of frames dropped because the loop ran late.
+     *
+     * @return the skipped frame count.
+     */
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    /**
+     * Gets a percentile of the recent frame times.
+     *
+     * @param percentile the percentile (0 to 100).
+     * @return the frame time, in milliseconds (or 0, before any frames).
+     */
+    public double getFrameTimePercentile(double percentile) {
+        long[] sorted = getRecentFrameTimes();
+        if (sorted.length == 0) {
+            return 0;
+        }
+        Arrays.sort(sorted);
+        int index = (int)Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    /**
+     * Gets the recent frame times, oldest first.
+     *
+     * @return the frame times, in nanoseconds.
+     */
+    private long[] getRecentFrameTimes() {
+        int count = (int)Math.min(frameCount, HISTORY_LENGTH);
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = frameTimes[(int)((frameCount - count + i) % HISTORY_LENGTH)];
+        }
+        return times;
+    }
+
+    /**
+     * Prints the frame pacing of the recent frames: the average frame rate and the spread of
+     * frame times.
+     *
+     * @param out the stream to print to.
+     */
+    public void printStats(PrintStream out) {
+        long[] times = getRecentFrameTimes();
+        long total = 0;
+        for (long time : times) {
+            total += time;
+        }
+        out.printf("Frames: %d (%d skipped), last %d at %.1f FPS%n", frameCount, skippedFrames,
+        times.length, total == 0 ? 0 : times.length * 1e9 / total);
+        out.printf("Frame times (ms): p50 %.2f, p95 %.2f, p99 %.2f, max %.2f%n",
+        getFrameTimePercentile(50), getFrameTimePercentile(95), getFrameTimePercentile(99),
+        getFrameTimePercentile(100));
+    }
+}
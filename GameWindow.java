@@ -0,0 +1,97 @@
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+import javax.swing.JFrame;
+import javax.swing.WindowConstants;
+
+/**
+ * A window that shows each frame as soon as the game loop finishes drawing it. Frames are
+ * presented through a BufferStrategy on a Canvas, so they're copied to the screen once (or
+ * flipped, where the graphics card supports it), on the game loop's own schedule instead of
+ * waiting for Swing to repaint.
+ */
+public class GameWindow {
+
+    // Triple buffering lets the game draw the next frame while the last one waits to show.
+    public static final int BUFFER_COUNT = 3;
+
+    private final JFrame frame;
+    private final Canvas canvas;
+    private final BufferStrategy bufferStrategy;
+
+    /**
+     * Opens a window with a canvas of the given size.
+     *
+     * @param title the title of the window.
+     * @param width the width of the canvas.
+     * @param height the height of the canvas.
+     */
+    public GameWindow(String title, int width, int height) {
+        canvas = new Canvas();
+        canvas.setPreferredSize(new Dimension(width, height));
+        // Every frame is drawn by the game loop, so ignore the system's requests to repaint.
+        canvas.setIgnoreRepaint(true);
+        canvas.setFocusable(true);
+
+        frame = new JFrame(title);
+        frame.setIgnoreRepaint(true);
+        // The game loop closes the window once it has stopped drawing to it.
+        frame.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        frame.setResizable(false);
+        frame.getContentPane().add(canvas);
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+
+        // The canvas must be on screen before it can have a buffer strategy.
+        canvas.createBufferStrategy(BUFFER_COUNT);
+        bufferStrategy = canvas.getBufferStrategy();
+        canvas.requestFocus();
+    }
+
+    /**
+     * Gets the window's frame.
+     *
+     * @return the JFrame.
+     */
+    public JFrame getJFrame() {
+        return frame;
+    }
+
+    /**
+     * Gets the canvas that frames are presented on, to listen for input.
+     *
+     * @return the canvas.
+     */
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+    /**
+     * Shows a finished frame on the screen.
+     *
+     * @param image the frame to show, drawn at the top left of the canvas.
+     */
+    public void present(Image image) {
+        // The buffers can be lost at any time (such as when the display mode changes), so
+        // draw again until a frame is shown intact.
+        do {
+            do {
+                Graphics graphics = bufferStrategy.getDrawGraphics();
+                graphics.drawImage(image, 0, 0, null);
+                graphics.dispose();
+            } while (bufferStrategy.contentsRestored());
+            bufferStrategy.show();
+        } while (bufferStrategy.contentsLost());
+        // Some window systems queue drawing, so send the frame now rather than later.
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    /**
+     * Closes the window.
+     */
+    public void close() {
+        bufferStrategy.dispose();
+        frame.dispose();
+    }
+}
@@ -0,0 +1,78 @@
+import java.awt.*;
+import java.awt.image.*;
+import java.io.IOException;
+
+/**
+ * A translucent vehicle following a GhostTrace, to race against a past run.
+ */
+public class GhostCar {
+
+    public static final Color GHOST_COLOR = new Color(220, 220, 255);
+    // The opacity of the ghost, from 0 to 1.
+    public static final double GHOST_ALPHA = 0.5;
+
+    // Every ghost looks the same, so the rotated sprites are only made once.
+    private static VehicleAtlas atlas;
+
+    private final GhostTrace trace;
+    private final double[] pose = new double[3];
+
+    /**
+     * Creates a ghost following the given trace.
+     *
+     * @param trace the trace of the race to follow.
+     * @throws IOException if the vehicle textures can't be read.
+     */
+    public GhostCar(GhostTrace trace) throws IOException {
+        this.trace = trace;
+        getAtlas();
+    }
+
+    /**
+     * Gets the ghost sprites, creating them the first time. The translucency is baked into the
+     * sprites, so a ghost costs no more to draw than a vehicle.
+     *
+     * @return the atlas of ghost sprites.
+     * @throws IOException if the vehicle textures can't be read.
+     */
+    private static synchronized VehicleAtlas getAtlas() throws IOException {
+        if (atlas == null) {
+            VehicleBody body = VehicleBody.load(VehicleAtlas.DEFAULT_STEPS);
+            BufferedImage sprite = body.createColoredImage(GHOST_COLOR);
+            int[] pixels = sprite.getRGB(0, 0, sprite.getWidth(), sprite.getHeight(), null, 0,
+            sprite.getWidth());
+            for (int i = 0; i < pixels.length; i++) {
+                int alpha = (int)Math.round((pixels[i] >>> 24) * GHOST_ALPHA);
+                pixels[i] = (alpha << 24) | (pixels[i] & 0xFFFFFF);
+            }
+            sprite.setRGB(0, 0, sprite.getWidth(), sprite.getHeight(), pixels, 0,
+            sprite.getWidth());
+            atlas = new VehicleAtlas(sprite, body.getMaskAtlas());
+        }
+        return atlas;
+    }
+
+    /**
+     * Draws the ghost where it was at the given time in its race. Draws nothing once its race
+     * has ended.
+     *
+     * @param buf the Graphics2D object to draw on.
+     * @param x the x-coordinate of the track in the top-left corner.
+     * @param y the y-coordinate of the track in the top-left corner.
+     * @param tick the time, in ticks since the race started.
+     */
+    public void drawGhost(Graphics2D buf, int x, int y, double tick) {
+        if (!trace.getPose(tick, pose)) {
+            return;
+        }
+        atlas.drawFrame(buf, atlas.getFrameIndex(pose[2]), (int)Math.round(pose[0]) - x,
+        (int)Math.round(pose[1]) - y);
+    }
+
+    /**
+     * Closes the ghost's trace file.
+     */
+    public void close() {
+        trace.close();
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * The path of a vehicle through a race, as poses sampled every few physics ticks. Traces are
+ * read from disk a sample at a time as the race goes on, so only the two samples around the
+ * current time are ever held in memory.
+ *
+ * Trace files start with the magic string "GHST", a version byte, the tick rate (int), the
+ * ticks between samples (int) and the sample count (int). Each sample follows as the change in
+ * x, y and rotation from the previous sample (in 1/16 pixels and 1/4096 radians), written as
+ * zigzag varints, so a sample usually takes 3 to 6 bytes.
+ */
+public class GhostTrace implements Closeable {
+
+    public static final String EXTENSION = ".ghost";
+    public static final String GHOST_DIR = "ghosts";
+    // Ticks between samples; poses in between are interpolated.
+    public static final int SAMPLE_TICKS = 4;
+
+    private static final char[] MAGIC = {'G', 'H', 'S', 'T'};
+    private static final int VERSION = 1;
+    private static final double POSITION_SCALE = 16;
+    private static final double ROTATION_SCALE = 4096;
+
+    private final Path file;
+    private DataInputStream in;
+    private int sampleTicks;
+    private int sampleCount;
+
+    // The two samples around the current time, in trace units. The rotation is unwrapped, so
+    // it can be interpolated without turning the long way around.
+    private int sampleIndex;
+    private long[] sample = new long[3];
+    private long[] nextSample = new long[3];
+    private boolean failed;
+
+    /**
+     * Opens a trace file, reading its header and first samples.
+     *
+     * @param file the path to the trace file.
+     * @throws IOException if the file can't be read or isn't a valid trace.
+     */
+    public GhostTrace(Path file) throws IOException {
+        this.file = file;
+        open();
+    }
+
+    /**
+     * Opens the trace file from the start.
+     *
+     * @throws IOException if the file can't be read or isn't a valid trace.
+     */
+    private void open() throws IOException {
+        close();
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        try {
+            for (char magic : MAGIC) {
+                if (in.readUnsignedByte() != magic) {
+                    throw new IOException("The provided ghost file is invalid.");
+                }
+            }
+            if (in.readUnsignedByte() != VERSION) {
+                throw new IOException("The ghost was saved by a different version.");
+            }
+            if (in.readInt() != VehicleFleet.TICK_RATE) {
+                throw new IOException("The ghost was recorded at a different tick rate.");
+            }
+            sampleTicks = in.readInt();
+            sampleCount = in.readInt();
+            if (sampleTicks <= 0 || sampleCount < 2) {
+                throw new IOException("The provided ghost file is invalid.");
+            }
+            sampleIndex = 0;
+            Arrays.fill(sample, 0);
+            readSample(sample, sample);
+            readSample(sample, nextSample);
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads the next sample from the file.
+     *
+     * @param previous the previous sample, which the next one is a change from.
+     * @param next receives the next sample.
+     * @throws IOException if the file can't be read.
+     */
+    private void readSample(long[] previous, long[] next) throws IOException {
+        for (int i = 0; i < next.length; i++) {
+            next[i] = previous[i] + readVarInt(in);
+        }
+    }
+
+    /**
+     * Gets the interpolated pose of the vehicle at the given time. Reads ahead in the file when
+     * the time passes the next sample, and starts over when the time goes back.
+     *
+     * @param tick the time, in ticks since the race started.
+     * @param pose receives the pose {x, y, rotation}.
+     * @return whether the trace has a pose at that time (false once it ends).
+     */
+    public boolean getPose(double tick, double[] pose) {
+        if (failed) {
+            return false;
+        }
+        double position = Math.max(0, tick / sampleTicks);
+        if (position >= sampleCount - 1) {
+            return false;
+        }
+        try {
+            if (position < sampleIndex) {
+                open();
+            }
+            while (position >= sampleIndex + 1) {
+                long[] swap = sample;
+                sample = nextSample;
+                nextSample = swap;
+                readSample(sample, nextSample);
+                sampleIndex++;
+            }
+        } catch (IOException ex) {
+            // Stop drawing the ghost, rather than interrupting the race.
+            System.err.println("Failed to read the ghost!");
+            ex.printStackTrace();
+            failed = true;
+            close();
+            return false;
+        }
+        double fraction = position - sampleIndex;
+        pose[0] = (sample[0] + (nextSample[0] - sample[0]) * fraction) / POSITION_SCALE;
+        pose[1] = (sample[1] + (nextSample[1] - sample[1]) * fraction) / POSITION_SCALE;
+        pose[2] = (sample[2] + (nextSample[2] - sample[2]) * fraction) / ROTATION_SCALE;
+        return true;
+    }
+
+    /**
+     * Closes the trace file.
+     */
+    @Override
+    public void close() {
+        if (in == null) {
+            return;
+        }
+        try {
+            in.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        in = null;
+    }
+
+    /**
+     * Gets the path a new trace of the given track is saved to by default, in the ghost
+     * directory and named after the track and the current time.
+     *
+     * @param trackId the ID of the track raced.
+     * @return the path of the new trace.
+     */
+    public static Path getDefaultPath(String trackId) {
+        return Paths.get(GHOST_DIR, trackId.trim() + "_" + System.currentTimeMillis() +
+        EXTENSION);
+    }
+
+    /**
+     * Writes the trace of a race by replaying it from the track's starting position. The file
+     * is written under a temporary name first, so it's never read half-written.
+     *
+     * @param track the track raced.
+     * @param replay the replay of the race.
+     * @param ticks the length of the race, in ticks.
+     * @param file the path to the trace file.
+     * @throws IOException if the file can't be written.
+     */
+    public static void record(Track track, Replay replay, long ticks, Path file)
+    throws IOException {
+        // Same stats as the player's vehicle.
+        VehicleFleet fleet = new VehicleFleet(VehicleBody.load(VehicleAtlas.DEFAULT_STEPS), 1);
+        int car = fleet.addVehicle(600, 300, Math.toRadians(270));
+        fleet.setTrack(track);
+        int[] carPos = track.getCarStartPosition();
+        fleet.setPosition(car, carPos[0], carPos[1]);
+        fleet.setRotation(car, Math.toRadians(carPos[2]));
+
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long sampleCount = (ticks + SAMPLE_TICKS - 1) / SAMPLE_TICKS + 1;
+        try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            for (char magic : MAGIC) {
+                out.writeByte(magic);
+            }
+            out.writeByte(VERSION);
+            out.writeInt(VehicleFleet.TICK_RATE);
+            out.writeInt(SAMPLE_TICKS);
+            out.writeInt((int)Math.min(sampleCount, Integer.MAX_VALUE));
+
+            long lastX = 0;
+            long lastY = 0;
+            long lastRot = 0;
+            double unwrappedRot = fleet.getRotation(car);
+            double previousRot = unwrappedRot;
+            for (long i = 0; i < sampleCount; i++) {
+                if (i > 0) {
+                    for (int tick = 0; tick < SAMPLE_TICKS; tick++) {
+                        fleet.setInput(car, replay.getInput(fleet.getSimulationTicks()));
+                        fleet.tick();
+                    }
+                }
+                // Rotations wrap around at 360 degrees, so follow the short way around.
+                unwrappedRot += VehicleFleet.getRotationChange(previousRot,
+                fleet.getRotation(car));
+                previousRot = fleet.getRotation(car);
+                long x = Math.round(fleet.getX(car) * POSITION_SCALE);
+                long y = Math.round(fleet.getY(car) * POSITION_SCALE);
+                long rot = Math.round(unwrappedRot * ROTATION_SCALE);
+                writeVarInt(out, x - lastX);
+                writeVarInt(out, y - lastY);
+                writeVarInt(out, rot - lastRot);
+                lastX = x;
+                lastY = y;
+                lastRot = rot;
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Writes the trace of a race on a new thread (see record()).
+     *
+     * @param track the track raced.
+     * @param replay the replay of the race.
+     * @param ticks the length of the race, in ticks.
+     * @param file the path to the trace file.
+     * @return the thread writing the file.
+     */
+    public static Thread recordAsync(Track track, Replay replay, long ticks, Path file) {
+        Thread writer = new Thread(() -> {
+            try {
+                record(track, replay, ticks, file);
+            } catch (IOException ex) {
+                System.err.println("Failed to save the ghost!");
+                ex.printStackTrace();
+            }
+        }, "Ghost writer");
+        writer.start();
+        return writer;
+    }
+
+    /**
+     * Writes a number as a zigzag varint: small changes either way take a single byte.
+     *
+     * @param out the stream to write to.
+     * @param value the number to write.
+     * @throws IOException if the stream can't be written.
+     */
+    private static void writeVarInt(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int)(zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte((int)zigzag);
+    }
+
+    /**
+     * Reads a number written by writeVarInt().
+     *
+     * @param in the stream to read from.
+     * @return the number read.
+     * @throws IOException if the stream can't be read or ends early.
+     */
+    private static long readVarInt(DataInputStream in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("The provided ghost file is invalid.");
+    }
+}
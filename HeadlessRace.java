@@ -0,0 +1,223 @@
+import java.io.*;
+import java.nio.file.Paths;
+
+/**
+ * Races vehicles around a track from input scripts or replays, without opening a window. The
+ * physics runs on a virtual clock, as fast as the processor allows.
+ * 
+ * Usage: java HeadlessRace [--ticks max] [--ai count] [--threads count] track script...
+ * 
+ * Each script (see InputScript) or replay file (see Replay) drives its own vehicle, and each AI
+ * vehicle is driven by an AIDriver. Every vehicle runs in one VehicleFleet, ticked all at once,
+ * and vehicles don't collide with each other. A vehicle is parked once it finishes. With
+ * --threads, the fleet is ticked on that many threads, which gives the same results. Prints each
+ * vehicle's lap times and place, and how many ticks were simulated per second.
+ * 
+ * The scripts directory has the scripts used to benchmark the simulator, for example:
+ * java HeadlessRace tracks/SampleTrack.track scripts/drift.txt scripts/straight.txt
+ */
+public class HeadlessRace {
+
+    // Stop after 10 minutes of race time, unless told otherwise.
+    private static final long DEFAULT_MAX_TICKS = 10L * 60 * VehicleFleet.TICK_RATE;
+
+    private final VirtualClock clock = new VirtualClock();
+    private final VehicleFleet fleet;
+    private final LapTracker[] lapTrackers;
+    private final Standings standings;
+    private final InputSource[] scripts;
+    private long ticks;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        long maxTicks = DEFAULT_MAX_TICKS;
+        int aiCount = 0;
+        int threads = 1;
+        int argIndex = 0;
+        while (args.length - argIndex > 1 && args[argIndex].startsWith("--")) {
+            if (args[argIndex].equals("--ticks")) {
+                maxTicks = Long.parseLong(args[argIndex + 1]);
+            } else if (args[argIndex].equals("--ai")) {
+                aiCount = Integer.parseInt(args[argIndex + 1]);
+            } else if (args[argIndex].equals("--threads")) {
+                threads = Integer.parseInt(args[argIndex + 1]);
+            } else {
+                break;
+            }
+            argIndex += 2;
+        }
+        int scriptCount = args.length - argIndex - 1;
+        if (scriptCount < 0 || scriptCount + aiCount == 0) {
+            System.err.println("Usage: java HeadlessRace [--ticks max] [--ai count] " +
+            "[--threads count] track script...");
+            System.exit(-1);
+        }
+
+        Track track = new Track(Paths.get(args[argIndex]), false);
+        if (aiCount > 0 && track.getProgressField() == null) {
+            System.err.println("The track is too big for AI vehicles.");
+            System.exit(-1);
+        }
+        int vehicleCount = scriptCount + aiCount;
+        String[] names = new String[vehicleCount];
+        // AI vehicles have no script.
+        InputSource[] scripts = new InputSource[vehicleCount];
+        try {
+            for (int i = 0; i < scriptCount; i++) {
+                String script = args[argIndex + 1 + i];
+                if (!script.endsWith(Replay.EXTENSION)) {
+                    scripts[i] = new InputScript(Paths.get(script));
+                    continue;
+                }
+                Replay replay = new Replay(Paths.get(script));
+                if (!replay.getTrackId().equals(track.getTrackId())) {
+                    throw new IOException(script + " is a replay of a different track.");
+                }
+                scripts[i] = replay;
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            System.exit(-1);
+        }
+
+        HeadlessRace race = new HeadlessRace(track, scripts);
+        race.setParallelism(threads);
+        long start = System.nanoTime();
+        race.run(maxTicks);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        race.shutdown();
+        System.arraycopy(args, argIndex + 1, names, 0, scriptCount);
+        for (int i = scriptCount; i < vehicleCount; i++) {
+            names[i] = "AI " + (i - scriptCount + 1);
+        }
+        race.printResults(System.out, names);
+        System.out.printf("%d ticks in %.3f s (%.0f vehicle ticks/s)%n", race.getTicks(), 
+        seconds, race.getTicks() * vehicleCount / seconds);
+    }
+
+    /**
+     * Places a vehicle for each script at the track's starting position, the same as the
+     * player's, and the AI vehicles on the grid behind it.
+     * 
+     * @param track the track to race.
+     * @param scripts the scripts (or replays) driving each vehicle, or null for vehicles driven
+     * by an AIDriver.
+     */
+    public HeadlessRace(Track track, InputSource[] scripts) {
+        this.scripts = scripts;
+        fleet = new VehicleFleet(Vehicle.loadBody(VehicleAtlas.DEFAULT_STEPS), scripts.length);
+        fleet.setTrack(track);
+        fleet.setClock(clock);
+        lapTrackers = new LapTracker[scripts.length];
+        int gridSlot = 0;
+        for (int i = 0; i < scripts.length; i++) {
+            // Same stats as the player's vehicle.
+            int car = fleet.addVehicle(600, 300, Math.toRadians(270));
+            int[] carPos = track.getCarStartPosition();
+            if (scripts[i] == null) {
+                fleet.setController(car, new AIDriver(track));
+                carPos = track.getGridPosition(++gridSlot);
+            }
+            fleet.setPosition(car, carPos[0], carPos[1]);
+            fleet.setRotation(car, Math.toRadians(carPos[2]));
+            // Lap trackers and standings index racers the same way as the fleet. A lone racer
+            // has no place to work out, so the track is only measured for AI or standings.
+            lapTrackers[i] = new LapTracker(track, fleet, car,
+            scripts.length > 1 ? track.getProgressField() : null);
+        }
+        // Start the fleet's timing, without running a tick.
+        fleet.update();
+        standings = new Standings(lapTrackers);
+    }
+
+    /**
+     * Sets how many threads tick the fleet (see VehicleFleet.setParallelism()).
+     * 
+     * @param parallelism the number of threads (1 to tick on the calling thread).
+     */
+    public void setParallelism(int parallelism) {
+        fleet.setParallelism(parallelism);
+    }
+
+    /**
+     * Stops the threads ticking the fleet, if there are any.
+     */
+    public void shutdown() {
+        fleet.shutdown();
+    }
+
+    /**
+     * Runs the race one tick at a time, until every vehicle finishes or the tick limit is hit.
+     * 
+     * @param maxTicks the most ticks to run.
+     */
+    public void run(long maxTicks) {
+        while (ticks < maxTicks && !isFinished()) {
+            for (int car = 0; car < scripts.length; car++) {
+                if (scripts[car] != null) {
+                    fleet.setInput(car, scripts[car].getInput(ticks));
+                }
+            }
+            clock.advanceTicks(1);
+            fleet.update();
+            for (int car = 0; car < scripts.length; car++) {
+                if (lapTrackers[car].isFinished()) {
+                    continue;
+                }
+                lapTrackers[car].update();
+                if (lapTrackers[car].isFinished()) {
+                    // Keep the vehicle where it crossed the line.
+                    fleet.setParked(car, true);
+                }
+            }
+            standings.update();
+            ticks++;
+        }
+    }
+
+    /**
+     * Checks whether every vehicle has finished the race.
+     * 
+     * @return whether the race is finished.
+     */
+    public boolean isFinished() {
+        for (LapTracker lapTracker : lapTrackers) {
+            if (!lapTracker.isFinished()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of ticks run.
+     * 
+     * @return the tick count.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Prints each vehicle's lap times and place.
+     * 
+     * @param out the stream to print to.
+     * @param names the name of each vehicle.
+     */
+    public void printResults(PrintStream out, String[] names) {
+        for (int i = 0; i < scripts.length; i++) {
+            out.println(names[i] + ":");
+            long[] lapTicks = lapTrackers[i].getLapTicks();
+            for (int lap = 0; lap < lapTicks.length; lap++) {
+                out.printf("  Lap %d: %s (%d ticks)%n", lap + 1, 
+                RaceUI.millisToFormattedTime(LapTracker.ticksToMillis(lapTicks[lap])), 
+                lapTicks[lap]);
+            }
+            out.printf("  %s: %s, place %d, health %.0f%n", 
+            lapTrackers[i].isFinished() ? "Finished" : "Did not finish",
+            RaceUI.millisToFormattedTime(lapTrackers[i].getRaceMillis()), 
+            standings.getPlace(i) + 1, fleet.getHealth(i));
+        }
+    }
+}
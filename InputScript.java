@@ -0,0 +1,77 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A list of controls held for a number of physics ticks each, for driving a vehicle without a
+ * player. Script files have one step per line, written as the tick count followed by the
+ * controls (see VehicleInput.parse()), for example "240 F" or "30 FL". Blank lines and lines
+ * starting with # are ignored. The last step is held forever.
+ */
+public class InputScript implements InputSource {
+
+    private int[] stepEnds;
+    private int[] stepInputs;
+    private int stepCount;
+
+    /**
+     * Reads a script file.
+     * 
+     * @param script the path to the script file.
+     * @throws IOException if the file can't be read or isn't a valid script.
+     */
+    public InputScript(Path script) throws IOException {
+        List<String> lines = Files.readAllLines(script);
+        stepEnds = new int[lines.size()];
+        stepInputs = new int[lines.size()];
+        int tick = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            try {
+                int ticks = Integer.parseInt(parts[0]);
+                if (ticks < 0 || parts.length > 2) {
+                    throw new IllegalArgumentException("Expected a tick count and controls.");
+                }
+                tick += ticks;
+                stepEnds[stepCount] = tick;
+                stepInputs[stepCount] = VehicleInput.parse(parts.length > 1 ? parts[1] : "-");
+                stepCount++;
+            } catch (IllegalArgumentException ex) {
+                throw new IOException(script + ", line " + (i + 1) + ": " + ex.getMessage());
+            }
+        }
+        stepEnds = Arrays.copyOf(stepEnds, stepCount);
+        stepInputs = Arrays.copyOf(stepInputs, stepCount);
+    }
+
+    @Override
+    public int getInput(long tick) {
+        if (stepCount == 0) {
+            return VehicleInput.NONE;
+        }
+        int step = Arrays.binarySearch(stepEnds, 0, stepCount, (int)Math.min(tick, 
+        Integer.MAX_VALUE));
+        // An exact match is the first tick of the next step.
+        step = step < 0 ? -step - 1 : step + 1;
+        // Skip empty steps ending on the same tick.
+        while (step < stepCount - 1 && stepEnds[step] <= tick) {
+            step++;
+        }
+        return stepInputs[Math.min(step, stepCount - 1)];
+    }
+
+    /**
+     * Gets the number of ticks until the last step, which is held forever.
+     * 
+     * @return the length of the script, in ticks.
+     */
+    public int getLength() {
+        return stepCount == 0 ? 0 : stepEnds[stepCount - 1];
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * Controls for a vehicle without a player, looked up by physics tick.
+ */
+public interface InputSource {
+
+    /**
+     * Gets the controls held on the given tick.
+     *
+     * @param tick the tick, counting from 0.
+     * @return the packed input (see VehicleInput).
+     */
+    int getInput(long tick);
+}
@@ -0,0 +1,216 @@
+import java.util.Arrays;
+
+/**
+ * Follows a vehicle of a fleet around a track, counting laps as it crosses the checkpoints in
+ * order. Race time is measured in physics ticks, so it doesn't depend on the frame rate.
+ * Between checkpoints, the track's progress field measures how far the vehicle is through its
+ * lap. Without a progress field, progress only counts the checkpoints reached.
+ */
+public class LapTracker {
+
+    private final Track track;
+    private final VehicleFleet fleet;
+    // The vehicle's index in its fleet.
+    private final int car;
+    // The track's progress field (or null, to count checkpoints only).
+    private final ProgressField field;
+
+    private final long startTick;
+    private int checkpointReached;
+    private int lapsDone;
+    // The tick each lap was completed on.
+    private final long[] lapEndTicks;
+    // How far through the lap the last checkpoint reached is (in progress field units).
+    private int checkpointDistance;
+    // The race completed so far, in laps.
+    private double progress;
+
+    /**
+     * Starts tracking a vehicle's race, from its current tick.
+     * 
+     * @param track the track being raced.
+     * @param vehicle the vehicle to follow.
+     */
+    public LapTracker(Track track, Vehicle vehicle) {
+        this(track, vehicle.getFleet(), vehicle.getFleetIndex());
+    }
+
+    /**
+     * Starts tracking the race of a vehicle of a fleet, from the fleet's current tick.
+     * 
+     * @param track the track being raced.
+     * @param fleet the fleet of the vehicle to follow.
+     * @param car the index of the vehicle in its fleet.
+     */
+    public LapTracker(Track track, VehicleFleet fleet, int car) {
+        this(track, fleet, car, track.getProgressField());
+    }
+
+    /**
+     * Starts tracking the race of a vehicle of a fleet, from the fleet's current tick.
+     * 
+     * @param track the track being raced.
+     * @param fleet the fleet of the vehicle to follow.
+     * @param car the index of the vehicle in its fleet.
+     * @param field the track's progress field, to measure progress between checkpoints (or
+     * null, to count checkpoints only, without measuring the track).
+     */
+    public LapTracker(Track track, VehicleFleet fleet, int car, ProgressField field) {
+        this.track = track;
+        this.fleet = fleet;
+        this.car = car;
+        this.field = field;
+        startTick = fleet.getSimulationTicks();
+        checkpointReached = 0;
+        lapsDone = 0;
+        lapEndTicks = new long[Math.max(0, track.getLapCount())];
+        checkpointDistance = 0;
+        updateProgress();
+    }
+
+    /**
+     * Checks the vehicle's last checkpoint, moving on to the next checkpoint or lap if it was
+     * reached, and measures its progress. Should run after each tick of the vehicle, so laps
+     * end on the tick they're completed (see VehicleFleet.setTickEndListener()).
+     * 
+     * @return whether the vehicle is on a checkpoint out of order (it skipped one).
+     */
+    public boolean update() {
+        if (isFinished()) {
+            return false;
+        }
+        boolean skipped = updateCheckpoint();
+        updateProgress();
+        return skipped;
+    }
+
+    /**
+     * Moves on to the next checkpoint or lap if the vehicle reached it.
+     * 
+     * @return whether the vehicle is on a checkpoint out of order (it skipped one).
+     */
+    private boolean updateCheckpoint() {
+        int lastCheckpoint = fleet.getLastCheckpoint(car);
+        if (lastCheckpoint == checkpointReached) {
+            return false;
+        }
+        // If lap complete
+        if (lastCheckpoint == 1 && checkpointReached == track.getCheckpointCount()) {
+            checkpointReached = 1;
+            checkpointDistance = 0;
+            lapEndTicks[lapsDone] = fleet.getSimulationTicks();
+            lapsDone++;
+        // if next checkpoint reached
+        } else if (lastCheckpoint == checkpointReached + 1) {
+            if (checkpointReached > 0 && field != null) {
+                checkpointDistance += field.getSectorLength(checkpointReached);
+            }
+            checkpointReached++;
+        } else if (lastCheckpoint > checkpointReached + 1 || lastCheckpoint == 1) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Measures how far the vehicle is through its lap, from its distance to the next
+     * checkpoint. Takes the same time anywhere on the track.
+     */
+    private void updateProgress() {
+        if (field == null && !isFinished()) {
+            // The lap starts at the goal, which is the first checkpoint.
+            progress = lapsDone + Math.max(0, checkpointReached - 1) /
+            (double)Math.max(1, track.getCheckpointCount());
+            return;
+        }
+        int lapLength = isFinished() ? 0 : field.getLapLength();
+        if (lapLength == 0) {
+            progress = lapsDone;
+            return;
+        }
+        int nextCheckpoint = field.getNextCheckpoint(checkpointReached);
+        int distance = field.getDistance(nextCheckpoint, (int)fleet.getX(car),
+        (int)fleet.getY(car));
+        if (distance == ProgressField.UNREACHABLE) {
+            // Keep the last progress until the vehicle is back on the field.
+            return;
+        }
+        // Before the goal is first reached, progress counts up to 0 as the vehicle nears it.
+        int sectorLength = checkpointReached == 0 ? 0 :
+        field.getSectorLength(checkpointReached);
+        int lapDistance = checkpointDistance + sectorLength - distance;
+        progress = lapsDone + lapDistance / (double)lapLength;
+    }
+
+    /**
+     * Gets the race completed so far, counting the part of the current lap. Progress between
+     * checkpoints follows the fastest way around the track (if there's a progress field).
+     * 
+     * @return the progress, in laps (1.5 is halfway through the second lap).
+     */
+    public double getProgress() {
+        return progress;
+    }
+
+    /**
+     * Gets the number of laps completed.
+     * 
+     * @return the completed lap count.
+     */
+    public int getLapsDone() {
+        return lapsDone;
+    }
+
+    /**
+     * Gets whether every lap of the track has been completed.
+     * 
+     * @return whether the race is finished.
+     */
+    public boolean isFinished() {
+        return lapsDone == track.getLapCount();
+    }
+
+    /**
+     * Gets the time raced so far, or the final time once the race is finished.
+     * 
+     * @return the race time, in ticks.
+     */
+    public long getRaceTicks() {
+        if (isFinished()) {
+            return lapsDone == 0 ? 0 : lapEndTicks[lapsDone - 1] - startTick;
+        }
+        return fleet.getSimulationTicks() - startTick;
+    }
+
+    /**
+     * Gets the time raced so far, or the final time once the race is finished.
+     * 
+     * @return the race time, in milliseconds.
+     */
+    public long getRaceMillis() {
+        return ticksToMillis(getRaceTicks());
+    }
+
+    /**
+     * Gets the time taken by each completed lap.
+     * 
+     * @return the lap times, in ticks.
+     */
+    public long[] getLapTicks() {
+        long[] lapTicks = Arrays.copyOf(lapEndTicks, lapsDone);
+        for (int i = lapsDone - 1; i >= 0; i--) {
+            lapTicks[i] -= i == 0 ? startTick : lapEndTicks[i - 1];
+        }
+        return lapTicks;
+    }
+
+    /**
+     * Converts a number of physics ticks to milliseconds.
+     * 
+     * @param ticks the number of ticks.
+     * @return the duration, in milliseconds.
+     */
+    public static long ticksToMillis(long ticks) {
+        return ticks * 1000 / VehicleFleet.TICK_RATE;
+    }
+}
@@ -1,5 +1,7 @@
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -84,8 +86,9 @@ public class Leaderboard {
     /**
      * Adds the given entry to the leaderboard, shifting ranks as necessary.
      * @param entry
+     * @return whether the entry made it onto the leaderboard.
      */
-    public void saveEntry(String trackId, LeaderboardEntry entry) {
+    public boolean saveEntry(String trackId, LeaderboardEntry entry) {
         List<LeaderboardEntry> entries = getLeaderboard(trackId);
         boolean shiftedEntry = false;
         for (int i = 0; i < entries.size(); i++) {
@@ -99,13 +102,33 @@ public class Leaderboard {
         }
         // Remove last entry from list if new one was insterted.
         if (shiftedEntry && entries.size() > MAX_LENGTH) {
-            entries.remove(entries.size() - 1);
+            deleteGhost(entries.remove(entries.size() - 1));
         // Add entry to end of list if list is short enough.
         } else if (!shiftedEntry && entries.size() < MAX_LENGTH) {
             entry.setRank(entries.size() + 1);
             entries.add(entry);
+        } else if (!shiftedEntry) {
+            return false;
         }
         saveLeaderboard(trackId, entries);
+        return true;
+    }
+
+    /**
+     * Deletes the ghost file of an entry that dropped off the leaderboard.
+     * 
+     * @param entry the removed entry.
+     */
+    private void deleteGhost(LeaderboardEntry entry) {
+        if (entry.getGhostFile() == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(entry.getGhostFile()));
+        } catch (IOException e) {
+            System.err.println("Can't delete an old ghost!");
+            e.printStackTrace();
+        }
     }
 
     private Node createEntry(LeaderboardEntry entry) {
@@ -125,6 +148,13 @@ public class Leaderboard {
         timeNode.appendChild(leaderboardDoc.createTextNode(String.valueOf(entry.getTime())));
         entryNode.appendChild(timeNode);
 
+        // Create ghost element, if the run has one
+        if (entry.getGhostFile() != null) {
+            Element ghostNode = leaderboardDoc.createElement("ghost");
+            ghostNode.appendChild(leaderboardDoc.createTextNode(entry.getGhostFile()));
+            entryNode.appendChild(ghostNode);
+        }
+
         return entryNode;
     }
 
@@ -196,11 +226,13 @@ public class Leaderboard {
                             Element entry = (Element)element;
                             Node nameNode = entry.getElementsByTagName("name").item(0);
                             Node timeNode = entry.getElementsByTagName("time").item(0);
+                            Node ghostNode = entry.getElementsByTagName("ghost").item(0);
                             // Add entry to list!
                             LeaderboardEntry leadEntry = new LeaderboardEntry(
                                 rankNumber, 
                                 nameNode.getTextContent(), 
-                                Long.parseLong(timeNode.getTextContent())
+                                Long.parseLong(timeNode.getTextContent()),
+                                ghostNode == null ? null : ghostNode.getTextContent()
                             );
                             if (leaderboardMap.size() >= rankNumber) {
                                 leaderboardMap.add(rankNumber-1, leadEntry);
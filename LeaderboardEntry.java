@@ -3,6 +3,7 @@ public class LeaderboardEntry {
     private int rank;
     private String name;
     private long time;
+    private String ghostFile;
 
     /**
      * Creates a new leaderboard entry.
@@ -12,9 +13,22 @@ public class LeaderboardEntry {
      * @param time the time associated with this rank.
      */
     public LeaderboardEntry(int rank, String name, long time) {
+        this(rank, name, time, null);
+    }
+
+    /**
+     * Creates a new leaderboard entry with a ghost of the run.
+     * 
+     * @param rank the rank for the respective track.
+     * @param name the name of the user who achieved this rank.
+     * @param time the time associated with this rank.
+     * @param ghostFile the path to the run's GhostTrace file (or null, if it has none).
+     */
+    public LeaderboardEntry(int rank, String name, long time, String ghostFile) {
         this.rank = rank;
         this.name = name;
         this.time = time;
+        this.ghostFile = ghostFile;
     }
 
     /**
@@ -53,4 +67,13 @@ public class LeaderboardEntry {
     public long getTime() {
         return time;
     }
+
+    /**
+     * Gets the path to the ghost of this entry's run.
+     * 
+     * @return the path to the GhostTrace file (or null, if the entry has none).
+     */
+    public String getGhostFile() {
+        return ghostFile;
+    }
 }
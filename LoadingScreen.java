@@ -0,0 +1,64 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * The screen shown while a track loads: the track's name, a progress bar, and what the load is
+ * doing.
+ */
+public class LoadingScreen {
+
+    private static final String FONT_NAME = "Calibri";
+    private static final int TITLE_FONTSIZE = 48;
+    private static final int FONTSIZE = 24;
+    private static final Color BACKGROUND_COLOR = new Color(32, 32, 32);
+    private static final Color BAR_COLOR = new Color(64, 64, 64);
+    private static final Color BAR_FILL_COLOR = Color.WHITE;
+    private static final int BAR_WIDTH = 640;
+    private static final int BAR_HEIGHT = 24;
+
+    /**
+     * Draws the loading screen for a track load.
+     *
+     * @param buf the screen buffer to draw to.
+     * @param loader the track load to show.
+     */
+    public void draw(BufferedImage buf, TrackLoader loader) {
+        Graphics2D graphics = buf.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+        RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setColor(BACKGROUND_COLOR);
+        graphics.fillRect(0, 0, buf.getWidth(), buf.getHeight());
+
+        int barX = (buf.getWidth() - BAR_WIDTH) / 2;
+        int barY = (buf.getHeight() - BAR_HEIGHT) / 2;
+
+        // Track name
+        String title = "Loading " + loader.getInfo().getName();
+        graphics.setColor(Menu.TEXT_COLOR);
+        Menu.shrinkFontToFit(graphics, new Font(FONT_NAME, Font.BOLD, TITLE_FONTSIZE), title,
+        buf.getWidth());
+        double[] titleBounds = Menu.getTextBounds(graphics, title);
+        graphics.drawString(title, (int)(buf.getWidth() - titleBounds[0]) / 2,
+        barY - BAR_HEIGHT * 2);
+
+        // Progress bar
+        graphics.setColor(BAR_COLOR);
+        graphics.fillRect(barX, barY, BAR_WIDTH, BAR_HEIGHT);
+        graphics.setColor(BAR_FILL_COLOR);
+        graphics.fillRect(barX, barY, (int)(BAR_WIDTH * loader.getProgress()), BAR_HEIGHT);
+
+        // Stage and hint
+        graphics.setColor(Menu.TEXT_COLOR);
+        graphics.setFont(new Font(FONT_NAME, Font.PLAIN, FONTSIZE));
+        String stage = loader.getStage() + "...";
+        double[] stageBounds = Menu.getTextBounds(graphics, stage);
+        graphics.drawString(stage, (int)(buf.getWidth() - stageBounds[0]) / 2,
+        barY + BAR_HEIGHT * 3);
+        graphics.setColor(Menu.TEXT_COLOR_DISABLED);
+        String hint = "Press Escape to cancel";
+        double[] hintBounds = Menu.getTextBounds(graphics, hint);
+        graphics.drawString(hint, (int)(buf.getWidth() - hintBounds[0]) / 2,
+        barY + BAR_HEIGHT * 5);
+        graphics.dispose();
+    }
+}
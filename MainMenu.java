@@ -1,9 +1,6 @@
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 
-import javax.imageio.ImageIO;
-
 import java.awt.*;
 
 public class MainMenu implements Menu {
@@ -25,7 +22,7 @@ public class MainMenu implements Menu {
         this.mouse = mouse;
 
         try {
-            backgroundImage = ImageIO.read(new File("textures/mainMenu.png"));
+            backgroundImage = TextureCache.acquire("textures/mainMenu.png");
         } catch (IOException ex) {
             ex.printStackTrace();
             System.exit(-1);
@@ -105,12 +102,14 @@ public class MainMenu implements Menu {
     }
 
     @Override
-    public Track getNewTrack() {
+    public TrackLoader getTrackLoader() {
         return null;
     }
 
     @Override
     public Menu getNextMenu() {
+        // This menu is done with once the next one shows.
+        TextureCache.release(backgroundImage);
         return new TrackMenu(key, mouse);
     }
 
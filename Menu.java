@@ -133,11 +133,11 @@ public interface Menu {
     public boolean hasTrack();
 
     /**
-     * Returns an instance of the new track (or null, if no track exists).
+     * Returns the loader of the new track (or null, if no track exists).
      * 
-     * @return the new track.
+     * @return the new track's loader.
      */
-    public Track getNewTrack();
+    public TrackLoader getTrackLoader();
 
     /**
      * Returns an instance of the next menu (or null, if the next menu doesn't exist).
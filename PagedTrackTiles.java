@@ -0,0 +1,315 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A textured track too big to keep in memory, drawn from tiles paged in from its tile file.
+ * Only the most recently drawn tiles are kept. Tiles just beyond the view, in the direction the
+ * view is moving, are loaded ahead of time on a background thread, so the view rarely has to
+ * wait for a tile to load.
+ *
+ * The tiles keep the tile file open and a prefetching thread running until they're closed.
+ */
+public class PagedTrackTiles {
+
+    // The most textured tiles kept in memory at once (256 KB each, at the usual tile size).
+    // Must be well over the number of tiles in view.
+    public static final int MAX_CACHED_TILES = 64;
+    // How far ahead of the view to load tiles (in tiles).
+    private static final int PREFETCH_TILES = 2;
+
+    private final TerrainTextures textures;
+    private final TrackTileFile tileFile;
+    private final GraphicsConfiguration config;
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int columns;
+    private final int rows;
+
+    // Loaded tiles by index (row by row), least recently drawn first. Guarded by itself.
+    private final LinkedHashMap<Integer, BufferedImage> tiles;
+    // Tiles waiting to be prefetched. Guarded by the tile cache.
+    private final Set<Integer> queuedTiles = new HashSet<>();
+    private final BlockingQueue<Integer> prefetchQueue = new LinkedBlockingQueue<>();
+    private Thread prefetcher;
+    // Whether the tiles were closed. Guarded by the tile cache.
+    private boolean closed;
+
+    // Where the view was last drawn, to tell which way it's moving.
+    private int lastX;
+    private int lastY;
+    private boolean drawn;
+
+    /**
+     * Creates paged tiles for a track, in the default screen's format.
+     *
+     * @param textures the textures to draw the tiles with.
+     * @param tileFile the track's tile file.
+     */
+    public PagedTrackTiles(TerrainTextures textures, TrackTileFile tileFile) {
+        this(textures, tileFile, TrackTiles.getDefaultConfiguration());
+    }
+
+    /**
+     * Creates paged tiles for a track.
+     *
+     * @param textures the textures to draw the tiles with.
+     * @param tileFile the track's tile file.
+     * @param config the configuration of the screen the tiles will be drawn to (or null, to use
+     * plain RGB images).
+     */
+    public PagedTrackTiles(TerrainTextures textures, TrackTileFile tileFile,
+    GraphicsConfiguration config) {
+        this.textures = textures;
+        this.tileFile = tileFile;
+        this.config = config;
+        width = tileFile.getWidth();
+        height = tileFile.getHeight();
+        tileSize = tileFile.getTileSize();
+        columns = (width + tileSize - 1) / tileSize;
+        rows = (height + tileSize - 1) / tileSize;
+        tiles = new LinkedHashMap<>(MAX_CACHED_TILES * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+                if (size() > MAX_CACHED_TILES) {
+                    // Let go of any copy Java2D keeps in video memory, too.
+                    eldest.getValue().flush();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Draws the part of the track in view, loading any tiles in view that aren't loaded yet,
+     * and queues the tiles ahead of the view to load in the background.
+     *
+     * @param buf the graphics to draw to.
+     * @param x the x-coordinate of the track to draw in the top-left corner.
+     * @param y the y-coordinate of the track to draw in the top-left corner.
+     * @param viewWidth the width of the view.
+     * @param viewHeight the height of the view.
+     */
+    public void draw(Graphics2D buf, int x, int y, int viewWidth, int viewHeight) {
+        int firstColumn = Math.max(0, Math.floorDiv(x, tileSize));
+        int lastColumn = Math.min(columns - 1, Math.floorDiv(x + viewWidth - 1, tileSize));
+        int firstRow = Math.max(0, Math.floorDiv(y, tileSize));
+        int lastRow = Math.min(rows - 1, Math.floorDiv(y + viewHeight - 1, tileSize));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                BufferedImage tile = getTile(row * columns + column);
+                if (tile != null) {
+                    buf.drawImage(tile, column * tileSize - x, row * tileSize - y, null);
+                }
+            }
+        }
+
+        if (drawn && (x != lastX || y != lastY)) {
+            // Reach ahead on the sides the view is moving toward.
+            int reach = PREFETCH_TILES * tileSize;
+            int aheadX = Integer.signum(x - lastX) * reach;
+            int aheadY = Integer.signum(y - lastY) * reach;
+            prefetch(Math.min(x, x + aheadX), Math.min(y, y + aheadY),
+            Math.max(x + viewWidth, x + viewWidth + aheadX),
+            Math.max(y + viewHeight, y + viewHeight + aheadY));
+        }
+        lastX = x;
+        lastY = y;
+        drawn = true;
+    }
+
+    /**
+     * Queues the tiles in an area of the track to load in the background, if they aren't
+     * loaded or queued already.
+     *
+     * @param left the left edge of the area.
+     * @param top the top edge of the area.
+     * @param right the right edge of the area (exclusive).
+     * @param bottom the bottom edge of the area (exclusive).
+     */
+    private void prefetch(int left, int top, int right, int bottom) {
+        int firstColumn = Math.max(0, Math.floorDiv(left, tileSize));
+        int lastColumn = Math.min(columns - 1, Math.floorDiv(right - 1, tileSize));
+        int firstRow = Math.max(0, Math.floorDiv(top, tileSize));
+        int lastRow = Math.min(rows - 1, Math.floorDiv(bottom - 1, tileSize));
+        synchronized (tiles) {
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    Integer index = row * columns + column;
+                    // Checking the cache without get() leaves the tile's age alone.
+                    if (!tiles.containsKey(index) && queuedTiles.add(index)) {
+                        prefetchQueue.add(index);
+                    }
+                }
+            }
+            if (prefetcher == null && !closed && !prefetchQueue.isEmpty()) {
+                prefetcher = new Thread(this::runPrefetcher, "Tile prefetcher");
+                // The prefetcher only ever loads tiles, so it shouldn't keep the game open.
+                prefetcher.setDaemon(true);
+                prefetcher.start();
+            }
+        }
+    }
+
+    /**
+     * Loads queued tiles, until the tiles are closed.
+     */
+    private void runPrefetcher() {
+        while (true) {
+            try {
+                int index = prefetchQueue.take();
+                getTile(index);
+                synchronized (tiles) {
+                    queuedTiles.remove(index);
+                }
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets a tile, loading it first if it isn't loaded.
+     *
+     * @param index the index of the tile, row by row.
+     * @return the tile (or null, if it couldn't be read).
+     */
+    private BufferedImage getTile(int index) {
+        synchronized (tiles) {
+            BufferedImage tile = tiles.get(index);
+            if (tile != null) {
+                return tile;
+            }
+        }
+        // Load outside the lock, so drawing never waits on a tile it doesn't need. Two threads
+        // may load the same tile at once; the first one to finish is kept.
+        BufferedImage tile = loadTile(index % columns, index / columns);
+        if (tile == null) {
+            return null;
+        }
+        synchronized (tiles) {
+            if (closed) {
+                return tile;
+            }
+            BufferedImage loaded = tiles.putIfAbsent(index, tile);
+            return loaded != null ? loaded : tile;
+        }
+    }
+
+    /**
+     * Reads a tile's terrain from the tile file and textures it.
+     *
+     * @param column the column of the tile.
+     * @param row the row of the tile.
+     * @return the textured tile (or null, if it couldn't be read).
+     */
+    private BufferedImage loadTile(int column, int row) {
+        byte[] terrain = new byte[tileSize * tileSize];
+        try {
+            tileFile.readTile(column, row, terrain);
+        } catch (IOException ex) {
+            synchronized (tiles) {
+                if (closed) {
+                    // The tile file was closed while the tile was read.
+                    return null;
+                }
+            }
+            System.err.println("Can't read the track's tiles!");
+            ex.printStackTrace();
+            return null;
+        }
+        int tileX = column * tileSize;
+        int tileY = row * tileSize;
+        int tileWidth = Math.min(tileSize, width - tileX);
+        int tileHeight = Math.min(tileSize, height - tileY);
+
+        BufferedImage textured = new BufferedImage(tileWidth, tileHeight,
+        BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt)textured.getRaster().getDataBuffer()).getData();
+        textures.texture(terrain, 0, tileSize, tileX, tileY, tileWidth, tileHeight, pixels, 0);
+        if (config == null) {
+            return textured;
+        }
+        BufferedImage tile = config.createCompatibleImage(tileWidth, tileHeight,
+        Transparency.OPAQUE);
+        // Only draw to the tile through its graphics, so Java2D can keep managing it.
+        Graphics2D graphics = tile.createGraphics();
+        graphics.drawImage(textured, 0, 0, null);
+        graphics.dispose();
+        return tile;
+    }
+
+    /**
+     * Stops the prefetching thread, lets go of the loaded tiles and closes the tile file. The
+     * tiles can't be drawn afterward.
+     */
+    public void close() {
+        Thread thread;
+        synchronized (tiles) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            thread = prefetcher;
+            prefetcher = null;
+            prefetchQueue.clear();
+            queuedTiles.clear();
+            for (BufferedImage tile : tiles.values()) {
+                tile.flush();
+            }
+            tiles.clear();
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            tileFile.close();
+        } catch (IOException ex) {
+            System.err.println("Can't close the track's tiles!");
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the number of tiles loaded.
+     *
+     * @return the loaded tile count.
+     */
+    public int getLoadedTileCount() {
+        synchronized (tiles) {
+            return tiles.size();
+        }
+    }
+
+    /**
+     * Gets the width of the track.
+     *
+     * @return the width, in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the track.
+     *
+     * @return the height, in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+}
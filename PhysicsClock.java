@@ -0,0 +1,16 @@
+/**
+ * A source of time for the vehicle physics. The simulation only advances when this clock does,
+ * so races can be driven by real time or by a virtual clock.
+ */
+public interface PhysicsClock {
+
+    // The system's high resolution timer.
+    public static final PhysicsClock SYSTEM = System::nanoTime;
+
+    /**
+     * Gets the current time of the clock. Only differences between times are meaningful.
+     * 
+     * @return the current time, in nanoseconds.
+     */
+    public long nanoTime();
+}
@@ -0,0 +1,422 @@
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * How far every pixel of a track is from each checkpoint, driving the fastest way. A vehicle
+ * that follows the field of its next checkpoint downhill drives the track, and its distance to
+ * that checkpoint measures how far through the lap it is.
+ *
+ * Distances are weighted by how fast the terrain is: grass costs more than the track, and so
+ * does getting close to a wall. They're stored in one short per pixel for each checkpoint, in
+ * units of getUnitLength() pixels.
+ *
+ * So a field takes 2 bytes per pixel for each checkpoint: 28 MB for a 1920 x 1920 track with 4
+ * checkpoints, but 1 GB for a 4096 x 4096 track with 30. Measuring it takes another 5 bytes per
+ * pixel while it runs. Fields that would take more than MAX_BYTES aren't measured at all (see
+ * Track.getProgressField()).
+ */
+public class ProgressField {
+
+    public static final int UNREACHABLE = -1;
+    // The most memory a measured field may take (see getSize()).
+    public static final long MAX_BYTES = 256L << 20;
+
+    // The cost of a straight step on the track. A diagonal step costs 3/2 as much.
+    private static final int STRAIGHT_COST = 2;
+    // The cost of a pixel, per step, as a multiple of STRAIGHT_COST / 2.
+    private static final int TRACK_COST = 2;
+    // Grass is 2.5 times slower than the track.
+    private static final int GRASS_COST = 5;
+    // The extra cost of pixels closer to a wall than a vehicle's half-width (plus some room).
+    private static final int WALL_COST = 3;
+    private static final int WALL_CLEARANCE = 24;
+    private static final int MAX_STEP_COST = (GRASS_COST + WALL_COST) * 3 / 2;
+
+    private final int width;
+    private final int height;
+    private final int checkpointCount;
+    // The distance of every pixel to each checkpoint, by checkpoint index - 1. Held in buffers,
+    // so a field saved in a compiled track can be used straight from the file.
+    private final ShortBuffer[] distances;
+    // Stored distances are shifted right by this many bits, so every distance fits a short.
+    private final int shift;
+    // The length of the sector from each checkpoint to the next, by checkpoint index - 1.
+    private final int[] sectorLengths;
+    private final int lapLength;
+
+    /**
+     * Computes the progress field of a track. Each checkpoint's distances are found by their
+     * own Dijkstra search, one checkpoint at a time, in a single full-size scratch array that
+     * is narrowed to shorts as soon as each search is done.
+     *
+     * @param track the track, with its terrain grid and wall distance field generated.
+     * @throws IllegalArgumentException if the field would take more than MAX_BYTES.
+     */
+    public ProgressField(Track track) {
+        width = track.getWidth();
+        height = track.getHeight();
+        checkpointCount = Math.max(1, track.getCheckpointCount());
+        if (getSize(width, height, checkpointCount) > MAX_BYTES) {
+            throw new IllegalArgumentException("The track is too big to measure with " +
+            checkpointCount + " checkpoints.");
+        }
+        byte[] costs = createCosts(track);
+
+        int[] scratch = new int[width * height];
+        short[][] packed = new short[checkpointCount][];
+        int[] shifts = new int[checkpointCount];
+        int maxShift = 0;
+        for (int i = 0; i < checkpointCount; i++) {
+            findDistances(track, costs, i + 1, scratch);
+            shifts[i] = getShift(scratch);
+            packed[i] = narrow(scratch, shifts[i]);
+            maxShift = Math.max(maxShift, shifts[i]);
+        }
+        // Every field needs the shift of the longest distance. Shifting twice rounds down the
+        // same as shifting once, so the fields narrowed with less shift can be shifted again.
+        shift = maxShift;
+        distances = new ShortBuffer[checkpointCount];
+        for (int i = 0; i < checkpointCount; i++) {
+            int extraShift = shift - shifts[i];
+            if (extraShift > 0) {
+                short[] field = packed[i];
+                for (int pixel = 0; pixel < field.length; pixel++) {
+                    if (field[pixel] != UNREACHABLE) {
+                        field[pixel] >>= extraShift;
+                    }
+                }
+            }
+            distances[i] = ShortBuffer.wrap(packed[i]);
+        }
+
+        // Each sector runs from the nearest pixel of its checkpoint to the next checkpoint.
+        sectorLengths = new int[checkpointCount];
+        byte[] terrain = track.getTerrainGrid();
+        int lap = 0;
+        for (int checkpoint = 1; checkpoint <= checkpointCount; checkpoint++) {
+            ShortBuffer toNext = distances[getNextCheckpoint(checkpoint) - 1];
+            int terrainClass = Track.TERRAIN_CHECKPOINT + checkpoint - 1;
+            int length = Integer.MAX_VALUE;
+            for (int pixel = 0; pixel < terrain.length; pixel++) {
+                if ((terrain[pixel] & 0xFF) == terrainClass && toNext.get(pixel) != UNREACHABLE) {
+                    length = Math.min(length, toNext.get(pixel));
+                }
+            }
+            sectorLengths[checkpoint - 1] = length == Integer.MAX_VALUE ? 0 : length;
+            lap += sectorLengths[checkpoint - 1];
+        }
+        lapLength = lap;
+    }
+
+    /**
+     * Gets how much memory the progress field of a track takes.
+     *
+     * @param width the width of the track.
+     * @param height the height of the track.
+     * @param checkpointCount the number of checkpoints on the track.
+     * @return the size of the field, in bytes.
+     */
+    public static long getSize(int width, int height, int checkpointCount) {
+        return 2L * width * height * Math.max(1, checkpointCount);
+    }
+
+    /**
+     * Gets how many bits distances must be shifted right by, so the longest fits in a short.
+     *
+     * @param fullDistances the distance of each pixel (Integer.MAX_VALUE where unreachable).
+     * @return the shift, in bits.
+     */
+    private static int getShift(int[] fullDistances) {
+        int maxDistance = 0;
+        for (int distance : fullDistances) {
+            if (distance != Integer.MAX_VALUE) {
+                maxDistance = Math.max(maxDistance, distance);
+            }
+        }
+        int bits = 0;
+        while ((maxDistance >> bits) > Short.MAX_VALUE) {
+            bits++;
+        }
+        return bits;
+    }
+
+    /**
+     * Narrows distances to shorts.
+     *
+     * @param fullDistances the distance of each pixel (Integer.MAX_VALUE where unreachable).
+     * @param shift how many bits to shift the distances right by, so they fit.
+     * @return the shifted distances (UNREACHABLE where unreachable).
+     */
+    private static short[] narrow(int[] fullDistances, int shift) {
+        short[] packed = new short[fullDistances.length];
+        for (int pixel = 0; pixel < fullDistances.length; pixel++) {
+            packed[pixel] = fullDistances[pixel] == Integer.MAX_VALUE ? UNREACHABLE :
+            (short)(fullDistances[pixel] >> shift);
+        }
+        return packed;
+    }
+
+    /**
+     * Uses a field computed earlier (see write() and getShift()).
+     *
+     * @param width the width of the track.
+     * @param height the height of the track.
+     * @param shift how many bits the stored distances are shifted right by.
+     * @param sectorLengths the length of each sector, by checkpoint index - 1, in units.
+     * @param distances the distance of every pixel to each checkpoint, by checkpoint index - 1,
+     * row by row, in units.
+     */
+    public ProgressField(int width, int height, int shift, int[] sectorLengths,
+    ShortBuffer[] distances) {
+        this.width = width;
+        this.height = height;
+        this.shift = shift;
+        this.sectorLengths = sectorLengths.clone();
+        this.distances = distances.clone();
+        checkpointCount = distances.length;
+        int lap = 0;
+        for (int length : sectorLengths) {
+            lap += length;
+        }
+        lapLength = lap;
+    }
+
+    /**
+     * Copies the stored distances to a checkpoint into a buffer, row by row, in units.
+     *
+     * @param checkpoint the index of the checkpoint.
+     * @param out the buffer to write to, with room for every pixel.
+     */
+    public void write(int checkpoint, ShortBuffer out) {
+        out.put(distances[checkpoint - 1].duplicate().clear());
+    }
+
+    /**
+     * Gets how many bits the stored distances are shifted right by, so they fit in a short.
+     *
+     * @return the shift, in bits.
+     */
+    public int getShift() {
+        return shift;
+    }
+
+    /**
+     * Gets the number of checkpoints the field measures distances to.
+     *
+     * @return the checkpoint count (at least 1).
+     */
+    public int getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * Gets the cost of driving over each pixel of a track (0 for walls).
+     *
+     * @param track the track.
+     * @return the cost of each pixel, row by row.
+     */
+    private static byte[] createCosts(Track track) {
+        int width = track.getWidth();
+        int height = track.getHeight();
+        BitLayer walls = track.getLayer(Track.LAYER_WALL);
+        BitLayer grass = track.getLayer(Track.LAYER_GRASS);
+        WallDistanceField wallDistance = track.getWallDistanceField();
+        byte[] costs = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (walls.get(x, y)) {
+                    continue;
+                }
+                int cost = grass.get(x, y) ? GRASS_COST : TRACK_COST;
+                if (wallDistance.getDistance(x, y) < WALL_CLEARANCE) {
+                    cost += WALL_COST;
+                }
+                costs[y * width + x] = (byte)cost;
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Finds the distance from every pixel to the nearest pixel of a checkpoint, with a
+     * Dijkstra search. Step costs are small integers, so the queue is a ring of buckets, one per
+     * distance.
+     *
+     * @param track the track.
+     * @param costs the cost of each pixel (see createCosts()).
+     * @param checkpoint the index of the checkpoint.
+     * @param distances receives the distance of each pixel (Integer.MAX_VALUE where the
+     * checkpoint can't be reached).
+     */
+    private static void findDistances(Track track, byte[] costs, int checkpoint,
+    int[] distances) {
+        int width = track.getWidth();
+        byte[] terrain = track.getTerrainGrid();
+        int target = Track.TERRAIN_CHECKPOINT + checkpoint - 1;
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        // The edge of the track is wall, so the neighbors of an open pixel are never off the
+        // track, and can be found by offset alone. The first four steps are straight.
+        int[] steps = {1, -1, width, -width, width + 1, width - 1, -width + 1, -width - 1};
+
+        int[][] buckets = new int[MAX_STEP_COST + 1][64];
+        int[] bucketSizes = new int[buckets.length];
+        int queued = 0;
+        for (int i = 0; i < terrain.length; i++) {
+            if ((terrain[i] & 0xFF) == target && costs[i] != 0) {
+                distances[i] = 0;
+                buckets[0] = push(buckets[0], bucketSizes[0]++, i);
+                queued++;
+            }
+        }
+
+        for (int distance = 0; queued > 0; distance++) {
+            int bucket = distance % buckets.length;
+            // Steps always cost something, so nothing is added to this bucket while it's read.
+            for (int item = 0; item < bucketSizes[bucket]; item++) {
+                int pixel = buckets[bucket][item];
+                queued--;
+                if (distances[pixel] != distance) {
+                    // Already reached more cheaply.
+                    continue;
+                }
+                for (int step = 0; step < steps.length; step++) {
+                    int next = pixel + steps[step];
+                    if (costs[next] == 0) {
+                        continue;
+                    }
+                    int stepCost = step < 4 ? costs[next] : (costs[next] * 3 + 1) / 2;
+                    int nextDistance = distance + stepCost;
+                    if (nextDistance < distances[next]) {
+                        distances[next] = nextDistance;
+                        int nextBucket = nextDistance % buckets.length;
+                        buckets[nextBucket] = push(buckets[nextBucket],
+                        bucketSizes[nextBucket]++, next);
+                        queued++;
+                    }
+                }
+            }
+            bucketSizes[bucket] = 0;
+        }
+    }
+
+    /**
+     * Adds a pixel to a bucket, growing the bucket if it's full.
+     *
+     * @param bucket the bucket.
+     * @param size the number of pixels in the bucket.
+     * @param pixel the pixel to add.
+     * @return the bucket, or its grown copy.
+     */
+    private static int[] push(int[] bucket, int size, int pixel) {
+        if (size == bucket.length) {
+            bucket = Arrays.copyOf(bucket, size * 2);
+        }
+        bucket[size] = pixel;
+        return bucket;
+    }
+
+    /**
+     * Gets the checkpoint that follows the given one in a lap.
+     *
+     * @param checkpoint the index of the last checkpoint reached (0, for none yet).
+     * @return the index of the next checkpoint (1 is the goal).
+     */
+    public int getNextCheckpoint(int checkpoint) {
+        return checkpoint >= checkpointCount ? 1 : checkpoint + 1;
+    }
+
+    /**
+     * Gets the length of a unit of stored distance.
+     *
+     * @return the length of a unit, in pixels of track.
+     */
+    public double getUnitLength() {
+        return (double)(1 << shift) / STRAIGHT_COST;
+    }
+
+    /**
+     * Gets the length of the sector from a checkpoint to the next one.
+     *
+     * @param checkpoint the index of the checkpoint the sector starts at.
+     * @return the sector length, in units.
+     */
+    public int getSectorLength(int checkpoint) {
+        return sectorLengths[checkpoint - 1];
+    }
+
+    /**
+     * Gets the length of a lap, through every checkpoint.
+     *
+     * @return the lap length, in units.
+     */
+    public int getLapLength() {
+        return lapLength;
+    }
+
+    /**
+     * Gets the distance from a pixel to a checkpoint.
+     *
+     * @param checkpoint the index of the checkpoint.
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the distance, in units (or UNREACHABLE, for walls and pixels off the track).
+     */
+    public int getDistance(int checkpoint, int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return UNREACHABLE;
+        }
+        return distances[checkpoint - 1].get(y * width + x);
+    }
+
+    /**
+     * Gets the direction that leads to a checkpoint fastest from the given point: the way the
+     * checkpoint's field falls.
+     *
+     * @param checkpoint the index of the checkpoint.
+     * @param x the x-coordinate of the point.
+     * @param y the y-coordinate of the point.
+     * @param radius how far apart to sample the field, in pixels.
+     * @param direction receives the unit direction {x, y}.
+     * @return whether a direction was found (false in walls and where the field is flat).
+     */
+    public boolean getDirection(int checkpoint, double x, double y, int radius,
+    double[] direction) {
+        int centerX = (int)Math.round(x);
+        int centerY = (int)Math.round(y);
+        int center = getDistance(checkpoint, centerX, centerY);
+        if (center == UNREACHABLE) {
+            return false;
+        }
+        double slopeX = getSlope(getDistance(checkpoint, centerX - radius, centerY), center,
+        getDistance(checkpoint, centerX + radius, centerY));
+        double slopeY = getSlope(getDistance(checkpoint, centerX, centerY - radius), center,
+        getDistance(checkpoint, centerX, centerY + radius));
+        double length = Math.hypot(slopeX, slopeY);
+        if (length == 0) {
+            return false;
+        }
+        direction[0] = -slopeX / length;
+        direction[1] = -slopeY / length;
+        return true;
+    }
+
+    /**
+     * Gets the slope of a field across a point, from the samples either side of it. Uses one
+     * side when the other is a wall.
+     *
+     * @param before the sample before the point.
+     * @param center the sample at the point.
+     * @param after the sample after the point.
+     * @return the change in the field across the point.
+     */
+    private static double getSlope(int before, int center, int after) {
+        if (before == UNREACHABLE && after == UNREACHABLE) {
+            return 0;
+        } else if (before == UNREACHABLE) {
+            return (after - center) * 2.0;
+        } else if (after == UNREACHABLE) {
+            return (center - before) * 2.0;
+        }
+        return after - before;
+    }
+}
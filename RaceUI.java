@@ -1,22 +1,29 @@
 import java.awt.*;
 import java.awt.image.*;
 import java.awt.Graphics2D;
+import java.nio.file.Path;
 import java.util.List;
 
 import javax.swing.JOptionPane;
 
-public class RaceUI {
+public class RaceUI implements FleetTickListener {
 
     private Track track;
     private Vehicle vehicle;
+    private ReplayRecorder replayRecorder;
 
     private boolean ready;
     private long countdownStart;
 
-    private long timerStart;
-    private int checkpointReached;
-    private int lapsDone;
+    private LapTracker lapTracker;
     private long finalTime;
+    // Whether the vehicle is on a checkpoint out of order, as of the last update.
+    private boolean skippedCheckpoint;
+
+    // The player's lap tracker comes first, then the opponents'.
+    private LapTracker[] lapTrackers;
+    private String[] racerNames;
+    private Standings standings;
 
     private static final int SEC_COUNTDOWN = 3;
     private static final int SEC_GO_MSG = 1;
@@ -26,6 +33,8 @@ public class RaceUI {
     private static final int SCREEN_PADDING = 16;
     private static final int TIMER_YPOS = UI_FONTSIZE;
     private static final int LAPS_YPOS = UI_FONTSIZE * 2;
+    private static final int PLACE_YPOS = UI_FONTSIZE * 3;
+    private static final int STANDINGS_FONTSIZE = UI_FONTSIZE * 3/4;
 
     private static final int LEADERBOARD_WIDTH = 480;
     private static final int LEADERBOARD_HEIGHT = 480;
@@ -43,15 +52,35 @@ public class RaceUI {
      * 
      * @param track the track to monitor.
      * @param vehicle the vehicle to monitor.
+     * @param replayRecorder the recorder of the vehicle's controls, used to save a ghost of new
+     * records (or null, to not save ghosts).
      */
-    public RaceUI(Track track, Vehicle vehicle) {
+    public RaceUI(Track track, Vehicle vehicle, ReplayRecorder replayRecorder) {
         this.track = track;
         this.vehicle = vehicle;
+        this.replayRecorder = replayRecorder;
         countdownStart = 0;
-        timerStart = 0;
-        checkpointReached = 0;
-        lapsDone = 0;
+        lapTracker = new LapTracker(track, vehicle);
         finalTime = 0;
+        setOpponents(new Vehicle[0], new String[0]);
+    }
+
+    /**
+     * Sets the other vehicles racing, to rank the vehicle against.
+     * 
+     * @param opponents the opponents' vehicles.
+     * @param names the name of each opponent.
+     */
+    public void setOpponents(Vehicle[] opponents, String[] names) {
+        lapTrackers = new LapTracker[opponents.length + 1];
+        racerNames = new String[opponents.length + 1];
+        lapTrackers[0] = lapTracker;
+        racerNames[0] = "You";
+        for (int i = 0; i < opponents.length; i++) {
+            lapTrackers[i + 1] = new LapTracker(track, opponents[i]);
+            racerNames[i + 1] = names[i];
+        }
+        standings = new Standings(lapTrackers);
     }
 
     /**
@@ -80,11 +109,30 @@ public class RaceUI {
         } else if (drawCountdown(graphics)) {
             // RACE UI
             drawLapTimer(graphics);
+            drawStandings(graphics);
             drawVehicleStats(graphics);
         }
         graphics.dispose();
     }
 
+    /**
+     * Follows every racer's laps and progress, and reorders the standings. Should run after
+     * every physics tick, so lap times are those of the tick each line was crossed on, and
+     * checkpoints crossed in the same frame are each seen in turn.
+     */
+    public void update() {
+        skippedCheckpoint = lapTracker.update();
+        for (int i = 1; i < lapTrackers.length; i++) {
+            lapTrackers[i].update();
+        }
+        standings.update();
+    }
+
+    @Override
+    public void tickEnded(long tick) {
+        update();
+    }
+
     /**
      * Indicate that the racer is ready to start.
      */
@@ -92,6 +140,15 @@ public class RaceUI {
         ready = true;
     }
 
+    /**
+     * Gets whether the vehicle has finished every lap.
+     * 
+     * @return whether the race is finished.
+     */
+    public boolean isRaceFinished() {
+        return lapTracker.isFinished();
+    }
+
     /**
      * Gets whether the countdown has completed and the user has control of their vehicle.
      * 
@@ -147,6 +204,30 @@ public class RaceUI {
         return false;
     }
 
+    /**
+     * Draws the vehicle's place under the lap counter and the standings in the top-right
+     * corner, as of the last update.
+     * 
+     * @param buf the Graphics2D object of the screen buffer.
+     */
+    public void drawStandings(Graphics2D buf) {
+        if (standings.getSize() < 2) {
+            return;
+        }
+
+        buf.setFont(new Font(FONT_NAME, Font.BOLD, UI_FONTSIZE));
+        buf.drawString(String.format("Place: %d/%d", standings.getPlace(0) + 1, 
+        standings.getSize()), SCREEN_PADDING, PLACE_YPOS);
+
+        buf.setFont(new Font(FONT_NAME, Font.PLAIN, STANDINGS_FONTSIZE));
+        for (int place = 0; place < standings.getSize(); place++) {
+            String entry = (place + 1) + ". " + racerNames[standings.getRacer(place)];
+            double[] entryBounds = Menu.getTextBounds(buf, entry);
+            buf.drawString(entry, RacetrackGame.PANEL_WIDTH - (int)entryBounds[0] - 
+            SCREEN_PADDING, STANDINGS_FONTSIZE * (place + 1));
+        }
+    }
+
     /**
      * Draws the vehicle speed and health in the bottom right corner.
      * 
@@ -278,46 +359,34 @@ public class RaceUI {
      */
     public void drawLapTimer(Graphics2D buf) {
         buf.setFont(new Font(FONT_NAME, Font.BOLD, UI_FONTSIZE));
-        long timerDur;
-        if (finalTime == 0) {
-            // Race hasn't ended yet.
-            if (timerStart == 0) {
-                timerStart = System.currentTimeMillis();
-            }
-            timerDur = System.currentTimeMillis() - timerStart;
-            if (vehicle.getLastCheckpoint() != checkpointReached) {
-                // If lap complete
-                if (vehicle.getLastCheckpoint() == 1 && 
-                checkpointReached == track.getCheckpointCount()) {
-                    checkpointReached = 1;
-                    lapsDone++;
-                // if next checkpoint reached
-                } else if (vehicle.getLastCheckpoint() == checkpointReached + 1) {
-                    checkpointReached++;
-                } else if (vehicle.getLastCheckpoint() > checkpointReached + 1 ||
-                vehicle.getLastCheckpoint() == 1) {
-                    drawCenteredMessage(buf, -1, "You skipped a checkpoint!");
-                }
-            }
-        } else {
-            // Race has ended.
-            timerDur = finalTime;
+        if (skippedCheckpoint) {
+            drawCenteredMessage(buf, -1, "You skipped a checkpoint!");
         }
-        // Print timer.
-        String timerStr = "Time: " + millisToFormattedTime(timerDur);
+        // Print timer. The tracker times the race in physics ticks, and stops when it ends.
+        String timerStr = "Time: " + millisToFormattedTime(lapTracker.getRaceMillis());
         buf.drawString(timerStr, SCREEN_PADDING, TIMER_YPOS);
 
         String lapStr;
-        if (lapsDone == track.getLapCount()) {
+        if (lapTracker.isFinished()) {
             if (finalTime == 0) {
-                finalTime = System.currentTimeMillis() - timerStart;
+                finalTime = lapTracker.getRaceMillis();
                 if (finalLeaderboard == null) {
                     // Add time to leaderboards if it qualifies.
                     List<LeaderboardEntry> leaders = track.getLeaderboard();
                     if (leaders.size() < Leaderboard.MAX_LENGTH || 
                     leaders.get(leaders.size() - 1).getTime() > finalTime) {
                         String name = JOptionPane.showInputDialog("New record! Enter your name:");
-                        track.addLeaderboardEntry(new LeaderboardEntry(1, name, finalTime));
+                        Path ghostPath = replayRecorder == null ? null :
+                        GhostTrace.getDefaultPath(track.getTrackId());
+                        boolean added = track.addLeaderboardEntry(new LeaderboardEntry(1, name,
+                        finalTime, ghostPath == null ? null : ghostPath.toString()));
+                        // Only save a ghost for a run that made the leaderboard, so no ghost
+                        // file is left without an entry.
+                        if (added && ghostPath != null) {
+                            // Trace the run on another thread, by replaying it.
+                            GhostTrace.recordAsync(track, replayRecorder.getReplay(),
+                            lapTracker.getRaceTicks(), ghostPath);
+                        }
                     }
                 }
             }
@@ -326,7 +395,8 @@ public class RaceUI {
             lapStr = String.format("Lap: %d/%d (Finished!)", track.getLapCount(), 
             track.getLapCount());
         } else {
-            lapStr = String.format("Lap: %d/%d", lapsDone + 1, track.getLapCount());
+            lapStr = String.format("Lap: %d/%d", lapTracker.getLapsDone() + 1, 
+            track.getLapCount());
         }
         buf.drawString(lapStr, SCREEN_PADDING, LAPS_YPOS);
     }
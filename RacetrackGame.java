@@ -10,62 +10,130 @@ import java.awt.*;
 import java.awt.image.*;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 
 import javax.swing.JFrame;
-import javax.swing.JPanel;
+import javax.swing.JOptionPane;
 
 public class RacetrackGame {
 
     public static final int PANEL_WIDTH = 1280;
     public static final int PANEL_HEIGHT = 720;
+    // The default frame rate (see the --fps option).
     public static final double FPS = 60.0;
+    // One opponent is raced for each color.
+    public static final Color[] OPPONENT_COLORS = {Color.ORANGE, Color.GREEN, Color.MAGENTA};
+    public static final String[] OPPONENT_NAMES = {"Orange", "Green", "Magenta"};
     public static Leaderboard leaderboard;
 
-    private static final DrawingPanel panel = new DrawingPanel(PANEL_WIDTH, PANEL_HEIGHT);
-    private static final BufferedImage screenBuf = new BufferedImage(PANEL_WIDTH, PANEL_HEIGHT,
-    BufferedImage.TYPE_INT_ARGB);
+    public static final String TITLE = "Racetrack Game";
+
+    private static GameWindow window;
+    // Frames are drawn here, then presented all at once.
+    private static BufferedImage screenBuf;
     private static final KeyInput keyInput = new KeyInput();
     private static final MouseInput mouseInput = new MouseInput();
 
     private static Track currentTrack;
     private static Menu currentMenu;
+    // The track being loaded, while the loading screen shows.
+    private static TrackLoader trackLoader;
+    private static final LoadingScreen loadingScreen = new LoadingScreen();
 
-    private static final double MILLIS_PER_FRAME = 1000 / FPS;
-    private static long frameCount = 0;
+    private static FrameScheduler frameScheduler;
+    // How many threads tick the race's fleet (see the --threads option).
+    private static int fleetThreads = 1;
 
+    // Every vehicle of a race, the player's first, ticked all at once.
+    private static VehicleFleet raceFleet;
     private static Vehicle raceCar;
+    private static Vehicle[] opponents;
     private static RaceUI raceUI;
     private static Camera raceCam;
+    private static ReplayRecorder replayRecorder;
+    private static GhostCar ghostCar;
 
     private static boolean isRacing = false;
     private static boolean restartLock = false;
     private static boolean readyUp;
 
     private static boolean done = false;
+
+    /**
+     * Runs the game.
+     * 
+     * Usage: java RacetrackGame [--fps rate] [--catch-up] [--threads count]
+     * 
+     * The frame rate defaults to FPS, and 0 runs as fast as possible. Late frames are skipped,
+     * unless --catch-up is given. Frame pacing stats are printed when the game closes. With
+     * --threads, each race's vehicles are ticked on that many threads.
+     * 
+     * @param args the command line options.
+     */
     public static void main(String[] args) {
+        frameScheduler = new FrameScheduler(FPS);
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--fps") && i + 1 < args.length) {
+                frameScheduler.setTargetFps(Double.parseDouble(args[++i]));
+            } else if (args[i].equals("--catch-up")) {
+                frameScheduler.setCatchUp(true);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                fleetThreads = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Usage: java RacetrackGame [--fps rate] [--catch-up] " +
+                "[--threads count]");
+                System.exit(-1);
+            }
+        }
 
         // General program setup
         initFrame();
         leaderboard = new Leaderboard();
         currentMenu = new MainMenu(keyInput, mouseInput);
-        long appStart = System.currentTimeMillis();
 
         // Main program loop
         while (!done) {
 
-            if (currentMenu.hasNextMenu()) {
+            if (trackLoader != null) {
+                // Show the loading screen until the track is ready, or Escape cancels it.
+                if (keyInput.getEscape()) {
+                    trackLoader.cancel();
+                    if (trackLoader.getTrack() != null) {
+                        // The load finished just before it was cancelled.
+                        trackLoader.getTrack().close();
+                    }
+                    trackLoader = null;
+                } else if (trackLoader.getFailure() != null) {
+                    // Go back to the menu the track was chosen from.
+                    showLoadFailure(trackLoader);
+                    trackLoader = null;
+                } else if (trackLoader.isDone()) {
+                    initTrack(trackLoader.getTrack());
+                    trackLoader = null;
+                    isRacing = true;
+                } else {
+                    loadingScreen.draw(screenBuf, trackLoader);
+                }
+            } else if (currentMenu.hasNextMenu()) {
                 // Change the menu whenever necessary.
                 currentMenu = currentMenu.getNextMenu();
             } else if (currentMenu.hasTrack()) {
-                // Start a new track when selected.
-                initTrack(currentMenu.getNewTrack());
-                isRacing = true;
+                // Start loading a new track when selected.
+                trackLoader = currentMenu.getTrackLoader();
             } else if (isRacing) {
                 // Main race loop.
 
                 // Go back to previous menu if Escape is pressed.
                 if (keyInput.getEscape()) {
+                    closeGhost();
+                    closeFleet();
                     isRacing = false;
+                    // Let go of the paged track's tile file and prefetcher.
+                    currentTrack.close();
                     currentTrack = null;
                     continue;
                 }
@@ -88,27 +156,38 @@ public class RacetrackGame {
                         raceUI.readyUp();
                     }
                 } else if (raceUI.countdownComplete()) {
-                    raceCar.updateVehicle(keyInput.getUp(), keyInput.getDown(), 
+                    raceCar.setInput(keyInput.getUp(), keyInput.getDown(), 
                     keyInput.getSpace(), 
                     keyInput.getLeft(), keyInput.getRight());
-                    raceCar.manageCollisions();
+                    // Opponents choose their own controls, and the race UI follows the race,
+                    // tick by tick.
+                    raceFleet.update();
                 }
 
                 raceCam.draw(screenBuf);
                 raceUI.drawUI(screenBuf);
 
+                // Save a replay of every finished race, without holding up the game.
+                if (replayRecorder != null && raceUI.isRaceFinished()) {
+                    raceCar.setTickListener(null);
+                    replayRecorder.saveAsync(Replay.getDefaultPath(currentTrack.getTrackId()));
+                    replayRecorder = null;
+                }
+
             } else {
                 // Menu loop.
                 currentMenu.drawMenu(screenBuf);
             }
 
-            // Draw elements to screen buffer to prevent flickering
-            panel.getGraphics().drawImage(screenBuf, 0, 0, null);
+            // Elements are drawn to the screen buffer first to prevent flickering.
+            window.present(screenBuf);
 
-            // Sleep long enough to maintain the target FPS.
-            long targetTime = appStart + (long)(++frameCount * MILLIS_PER_FRAME);
-            panel.sleep((int)(targetTime - System.currentTimeMillis()));
+            // Wait long enough to maintain the target FPS.
+            frameScheduler.waitForNextFrame();
         }
+        closeFleet();
+        window.close();
+        frameScheduler.printStats(System.out);
     }
 
     /**
@@ -118,22 +197,121 @@ public class RacetrackGame {
      */
     private static void initTrack(Track track) {
         currentTrack = track;
-        raceCar = new Vehicle(600, 300, Math.toRadians(270), Color.BLUE);
-        raceCar.setTrack(currentTrack);
+        closeFleet();
+        raceFleet = new VehicleFleet(Vehicle.loadBody(VehicleAtlas.DEFAULT_STEPS),
+        1 + OPPONENT_COLORS.length);
+        raceFleet.setTrack(currentTrack);
+        raceFleet.setParallelism(fleetThreads);
+        raceCar = new Vehicle(raceFleet, 600, 300, Math.toRadians(270), Color.BLUE);
         int[] carPos = track.getCarStartPosition();
         raceCar.setPosition(carPos[0], carPos[1]);
         raceCar.setRotation(Math.toRadians(carPos[2]));
+        replayRecorder = new ReplayRecorder(track.getTrackId(), raceCar.getFleetIndex());
+        raceCar.setTickListener(replayRecorder);
+        opponents = createOpponents(track);
         raceCam = new Camera(currentTrack, raceCar);
-        raceUI = new RaceUI(currentTrack, raceCar);
+        raceCam.setOpponents(opponents);
+        closeGhost();
+        ghostCar = loadGhost(track);
+        raceCam.setGhost(ghostCar);
+        raceUI = new RaceUI(currentTrack, raceCar, replayRecorder);
+        raceUI.setOpponents(opponents, OPPONENT_NAMES);
+        raceFleet.setTickEndListener(raceUI);
         readyUp = false;
     }
 
     /**
-     * Initializes the JFrame, JPanel and KeyInput objects.
+     * Tells the player that a track couldn't be loaded.
+     * 
+     * @param loader the failed load.
+     */
+    private static void showLoadFailure(TrackLoader loader) {
+        System.err.println("Can't load the track!");
+        loader.getFailure().printStackTrace();
+        JOptionPane.showMessageDialog(window.getJFrame(), "Can't load " +
+        loader.getInfo().getName() + ":\n" + loader.getFailure(), TITLE,
+        JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Creates the AI opponents for a race in the race's fleet, lined up on the grid behind the
+     * player. Tracks too big to measure are raced alone.
+     * 
+     * @param track the track to race.
+     * @return the opponents (none, if the track is too big for them).
+     */
+    private static Vehicle[] createOpponents(Track track) {
+        if (track.getProgressField() == null) {
+            return new Vehicle[0];
+        }
+        Vehicle[] opponents = new Vehicle[OPPONENT_COLORS.length];
+        for (int i = 0; i < opponents.length; i++) {
+            Vehicle opponent = new Vehicle(raceFleet, 600, 300, Math.toRadians(270),
+            OPPONENT_COLORS[i]);
+            int[] gridPos = track.getGridPosition(i + 1);
+            opponent.setPosition(gridPos[0], gridPos[1]);
+            opponent.setRotation(Math.toRadians(gridPos[2]));
+            opponent.setController(new AIDriver(track));
+            opponents[i] = opponent;
+        }
+        return opponents;
+    }
+
+    /**
+     * Loads the ghost of the best run on the given track.
+     * 
+     * @param track the track to race.
+     * @return the ghost of the leaderboard's first entry (or null, if it has none).
+     */
+    private static GhostCar loadGhost(Track track) {
+        List<LeaderboardEntry> leaders = track.getLeaderboard();
+        if (leaders.isEmpty() || leaders.get(0).getGhostFile() == null) {
+            return null;
+        }
+        Path ghostFile = Paths.get(leaders.get(0).getGhostFile());
+        // The ghost of a record set moments ago may not be written yet.
+        if (!Files.exists(ghostFile)) {
+            return null;
+        }
+        try {
+            return new GhostCar(new GhostTrace(ghostFile));
+        } catch (IOException e) {
+            System.err.println("Can't load the ghost!");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Stops the threads ticking the current race's fleet, if there are any.
+     */
+    private static void closeFleet() {
+        if (raceFleet != null) {
+            raceFleet.shutdown();
+            raceFleet = null;
+        }
+    }
+
+    /**
+     * Closes the ghost of the current race, if there is one.
+     */
+    private static void closeGhost() {
+        if (ghostCar != null) {
+            ghostCar.close();
+            ghostCar = null;
+        }
+    }
+
+    /**
+     * Opens the game window, and listens for input on its canvas.
      */
     private static void initFrame() {
-        JPanel jPanel = panel.getJPanel();
-        JFrame jFrame = panel.getJFrame();
+        window = new GameWindow(TITLE, PANEL_WIDTH, PANEL_HEIGHT);
+        Canvas canvas = window.getCanvas();
+        JFrame jFrame = window.getJFrame();
+        // Match the screen's pixel format, so presenting a frame needs no conversion.
+        screenBuf = canvas.getGraphicsConfiguration().createCompatibleImage(PANEL_WIDTH,
+        PANEL_HEIGHT);
 
         // Add WindowListener that closes program when window closes.
         jFrame.addWindowListener(new WindowListener() {
@@ -173,11 +351,9 @@ public class RacetrackGame {
             }
         });
 
-        jPanel.setFocusable(true);
-        jPanel.requestFocusInWindow();
-        jPanel.addKeyListener(keyInput);
-        jPanel.addMouseListener(mouseInput);
-        jPanel.addMouseMotionListener(mouseInput);
+        canvas.addKeyListener(keyInput);
+        canvas.addMouseListener(mouseInput);
+        canvas.addMouseMotionListener(mouseInput);
     }
 
 }
\ No newline at end of file
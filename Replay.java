@@ -0,0 +1,196 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The controls a vehicle held on every physics tick of a race. The physics is deterministic, so
+ * driving a vehicle from the same start with a replay's controls repeats the race exactly.
+ *
+ * Replay files start with the magic string "RPLY", a version byte, the 16-character track ID,
+ * the tick rate (int) and the tick count (int), followed by the controls of each tick packed
+ * into VehicleInput.BITS bits, lowest bit first.
+ */
+public class Replay implements InputSource {
+
+    public static final String EXTENSION = ".rply";
+    public static final String REPLAY_DIR = "replays";
+
+    private static final char[] MAGIC = {'R', 'P', 'L', 'Y'};
+    private static final int VERSION = 1;
+    private static final int TRACK_ID_LENGTH = 16;
+    private static final int INPUT_MASK = (1 << VehicleInput.BITS) - 1;
+
+    private final String trackId;
+    private final int tickCount;
+    private final byte[] inputBits;
+
+    /**
+     * Creates a replay from packed controls.
+     *
+     * @param trackId the ID of the track raced.
+     * @param inputBits the packed controls (see writeInput()).
+     * @param tickCount the number of ticks recorded.
+     */
+    Replay(String trackId, byte[] inputBits, int tickCount) {
+        this.trackId = trackId;
+        this.inputBits = inputBits;
+        this.tickCount = tickCount;
+    }
+
+    /**
+     * Reads a replay file.
+     *
+     * @param replay the path to the replay file.
+     * @throws IOException if the file can't be read or isn't a valid replay.
+     */
+    public Replay(Path replay) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(replay)))) {
+            for (char magic : MAGIC) {
+                if (in.readUnsignedByte() != magic) {
+                    throw new IOException("The provided replay file is invalid.");
+                }
+            }
+            if (in.readUnsignedByte() != VERSION) {
+                throw new IOException("The replay was saved by a different version.");
+            }
+            StringBuilder trackIdBuilder = new StringBuilder();
+            for (int i = 0; i < TRACK_ID_LENGTH; i++) {
+                trackIdBuilder.append((char)in.readUnsignedByte());
+            }
+            trackId = trackIdBuilder.toString();
+            // Ticks of a different length would move the vehicles differently.
+            if (in.readInt() != VehicleFleet.TICK_RATE) {
+                throw new IOException("The replay was recorded at a different tick rate.");
+            }
+            tickCount = in.readInt();
+            if (tickCount < 0) {
+                throw new IOException("The provided replay file is invalid.");
+            }
+            inputBits = new byte[getPackedLength(tickCount)];
+            in.readFully(inputBits);
+        } catch (EOFException ex) {
+            throw new IOException("The replay file ends early.", ex);
+        }
+    }
+
+    /**
+     * Writes the replay to a file, creating its directory if needed.
+     *
+     * @param replay the path to the replay file.
+     * @throws IOException if the file can't be written.
+     */
+    public void save(Path replay) throws IOException {
+        Path dir = replay.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(replay)))) {
+            for (char magic : MAGIC) {
+                out.writeByte(magic);
+            }
+            out.writeByte(VERSION);
+            for (int i = 0; i < TRACK_ID_LENGTH; i++) {
+                out.writeByte(i < trackId.length() ? trackId.charAt(i) : ' ');
+            }
+            out.writeInt(VehicleFleet.TICK_RATE);
+            out.writeInt(tickCount);
+            out.write(inputBits, 0, getPackedLength(tickCount));
+        }
+    }
+
+    /**
+     * Gets the path a new replay of the given track is saved to by default, in the replay
+     * directory and named after the track and the current time.
+     *
+     * @param trackId the ID of the track raced.
+     * @return the path of the new replay.
+     */
+    public static Path getDefaultPath(String trackId) {
+        return Paths.get(REPLAY_DIR, trackId.trim() + "_" + System.currentTimeMillis() +
+        EXTENSION);
+    }
+
+    /**
+     * Gets the ID of the track raced.
+     *
+     * @return the track ID.
+     */
+    public String getTrackId() {
+        return trackId;
+    }
+
+    /**
+     * Gets the number of ticks recorded.
+     *
+     * @return the length of the replay, in ticks.
+     */
+    public int getLength() {
+        return tickCount;
+    }
+
+    /**
+     * Gets the controls held on the given tick. No controls are held after the replay ends.
+     *
+     * @param tick the tick, counting from 0.
+     * @return the packed input (see VehicleInput).
+     */
+    @Override
+    public int getInput(long tick) {
+        if (tick < 0 || tick >= tickCount) {
+            return VehicleInput.NONE;
+        }
+        return readInput(inputBits, tick);
+    }
+
+    /**
+     * Gets the number of bytes needed to pack the controls of the given number of ticks.
+     *
+     * @param tickCount the number of ticks.
+     * @return the length of the packed controls, in bytes.
+     */
+    static int getPackedLength(long tickCount) {
+        return (int)((tickCount * VehicleInput.BITS + 7) / 8);
+    }
+
+    /**
+     * Reads the controls of a tick from packed controls.
+     *
+     * @param inputBits the packed controls.
+     * @param tick the tick, counting from 0.
+     * @return the packed input (see VehicleInput).
+     */
+    static int readInput(byte[] inputBits, long tick) {
+        long bit = tick * VehicleInput.BITS;
+        int index = (int)(bit >>> 3);
+        int shift = (int)(bit & 7);
+        // A tick's bits can cross into the next byte.
+        int value = inputBits[index] & 0xFF;
+        if (shift + VehicleInput.BITS > 8) {
+            value |= (inputBits[index + 1] & 0xFF) << 8;
+        }
+        return (value >>> shift) & INPUT_MASK;
+    }
+
+    /**
+     * Writes the controls of a tick into packed controls.
+     *
+     * @param inputBits the packed controls, long enough to hold the tick.
+     * @param tick the tick, counting from 0.
+     * @param input the packed input (see VehicleInput).
+     */
+    static void writeInput(byte[] inputBits, long tick, int input) {
+        long bit = tick * VehicleInput.BITS;
+        int index = (int)(bit >>> 3);
+        int shift = (int)(bit & 7);
+        int mask = INPUT_MASK << shift;
+        int value = (input & INPUT_MASK) << shift;
+        inputBits[index] = (byte)((inputBits[index] & ~mask) | value);
+        if (shift + VehicleInput.BITS > 8) {
+            inputBits[index + 1] = (byte)((inputBits[index + 1] & ~(mask >>> 8)) |
+            (value >>> 8));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Records the controls of a vehicle on every physics tick into a Replay. Recording only packs
+ * each tick's controls into memory, and saving writes the file on its own thread, so a race can
+ * always be recorded without slowing the game.
+ *
+ * A replay holds a single vehicle's controls, so the recorder only records one vehicle of its
+ * fleet and ignores the rest. Recording and reading are synchronized, so it can listen to a
+ * fleet ticked in parallel, and be read from another thread.
+ */
+public class ReplayRecorder implements VehicleTickListener {
+
+    // Room for a minute of controls at first, doubling whenever it runs out.
+    private static final int INITIAL_TICKS = 60 * VehicleFleet.TICK_RATE;
+
+    private final String trackId;
+    // The index of the recorded vehicle in its fleet.
+    private final int car;
+    private byte[] inputBits = new byte[Replay.getPackedLength(INITIAL_TICKS)];
+    private int tickCount;
+
+    /**
+     * Creates a recorder for a race on the given track.
+     *
+     * @param trackId the ID of the track raced.
+     * @param car the index in its fleet of the vehicle to record.
+     */
+    public ReplayRecorder(String trackId, int car) {
+        this.trackId = trackId;
+        this.car = car;
+    }
+
+    @Override
+    public void tickStarted(int car, long tick, int input) {
+        // Other vehicles are filtered out first, so parallel ticks don't wait on the lock.
+        if (car != this.car || tick >= Integer.MAX_VALUE) {
+            return;
+        }
+        synchronized (this) {
+            int needed = Replay.getPackedLength(tick + 1);
+            if (needed > inputBits.length) {
+                inputBits = Arrays.copyOf(inputBits, Math.max(needed, inputBits.length * 2));
+            }
+            Replay.writeInput(inputBits, tick, input);
+            tickCount = Math.max(tickCount, (int)tick + 1);
+        }
+    }
+
+    /**
+     * Gets the number of ticks recorded so far.
+     *
+     * @return the length of the recording, in ticks.
+     */
+    public synchronized int getLength() {
+        return tickCount;
+    }
+
+    /**
+     * Creates a replay of the ticks recorded so far. Later ticks don't change the replay.
+     *
+     * @return the replay.
+     */
+    public synchronized Replay getReplay() {
+        return new Replay(trackId, Arrays.copyOf(inputBits, Replay.getPackedLength(tickCount)),
+        tickCount);
+    }
+
+    /**
+     * Saves a replay of the ticks recorded so far on a new thread.
+     *
+     * @param replayPath the path to the replay file.
+     * @return the thread writing the file.
+     */
+    public Thread saveAsync(Path replayPath) {
+        Replay replay = getReplay();
+        Thread writer = new Thread(() -> {
+            try {
+                replay.save(replayPath);
+            } catch (IOException ex) {
+                System.err.println("Failed to save the replay!");
+                ex.printStackTrace();
+            }
+        }, "Replay writer");
+        writer.start();
+        return writer;
+    }
+}
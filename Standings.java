@@ -0,0 +1,82 @@
+/**
+ * The running order of a race, ranked by the progress of each racer's LapTracker. The order is
+ * kept between updates and fixed with an insertion sort, which takes linear time when only a
+ * few racers have changed places, as in almost every update.
+ */
+public class Standings {
+
+    private final LapTracker[] trackers;
+    // The progress of each racer, as of the last update.
+    private final double[] progress;
+    // The racers, from first place to last.
+    private final int[] order;
+    // The place of each racer (0 is first).
+    private final int[] places;
+
+    /**
+     * Creates the standings of a race, in the order the racers are given until the first
+     * update.
+     * 
+     * @param trackers the lap tracker of each racer.
+     */
+    public Standings(LapTracker[] trackers) {
+        this.trackers = trackers;
+        progress = new double[trackers.length];
+        order = new int[trackers.length];
+        places = new int[trackers.length];
+        for (int i = 0; i < trackers.length; i++) {
+            order[i] = i;
+            places[i] = i;
+        }
+    }
+
+    /**
+     * Reorders the racers by their progress. Should run after their lap trackers update.
+     */
+    public void update() {
+        for (int racer = 0; racer < trackers.length; racer++) {
+            progress[racer] = trackers[racer].getProgress();
+        }
+        // The sort is stable, so racers who finish keep the order they crossed the line in.
+        for (int i = 1; i < order.length; i++) {
+            int racer = order[i];
+            int place = i;
+            while (place > 0 && progress[order[place - 1]] < progress[racer]) {
+                order[place] = order[place - 1];
+                places[order[place]] = place;
+                place--;
+            }
+            order[place] = racer;
+            places[racer] = place;
+        }
+    }
+
+    /**
+     * Gets the number of racers.
+     * 
+     * @return the racer count.
+     */
+    public int getSize() {
+        return order.length;
+    }
+
+    /**
+     * Gets the racer in the given place.
+     * 
+     * @param place the place (0 is first).
+     * @return the index of the racer's lap tracker.
+     */
+    public int getRacer(int place) {
+        return order[place];
+    }
+
+    /**
+     * Gets the place of the given racer.
+     * 
+     * @param racer the index of the racer's lap tracker.
+     * @return the racer's place (0 is first).
+     */
+    public int getPlace(int racer) {
+        return places[racer];
+    }
+}
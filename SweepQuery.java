@@ -0,0 +1,175 @@
+/**
+ * Sweeps a box-shaped vehicle against the segments of a WallGeometry. A query keeps its own
+ * scratch space, so it never allocates, but it can only run one sweep at a time; threads
+ * sweeping the same walls each need their own query.
+ */
+public class SweepQuery {
+
+    private final double[] points = new double[16];
+    private final double[] hull = new double[18];
+    private int hullSize;
+    private final int[] stack = new int[64];
+
+    /**
+     * Checks whether a box-shaped vehicle hits any wall while moving between two poses. The
+     * swept area is the convex hull of the box at both poses.
+     *
+     * @param walls the walls to sweep against.
+     * @param startX the x-coordinate of the vehicle's center at the start.
+     * @param startY the y-coordinate of the vehicle's center at the start.
+     * @param startRot the rotation of the vehicle at the start, in radians.
+     * @param endX the x-coordinate of the vehicle's center at the end.
+     * @param endY the y-coordinate of the vehicle's center at the end.
+     * @param endRot the rotation of the vehicle at the end, in radians.
+     * @param halfLength half of the vehicle's length.
+     * @param halfWidth half of the vehicle's width.
+     * @return the index of a wall segment that was hit (or -1, if the path is clear).
+     */
+    public int sweep(WallGeometry walls, double startX, double startY, double startRot,
+    double endX, double endY, double endRot, double halfLength, double halfWidth) {
+        addCorners(0, startX, startY, startRot, halfLength, halfWidth);
+        addCorners(8, endX, endY, endRot, halfLength, halfWidth);
+        buildHull();
+
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < hullSize; i++) {
+            minX = Math.min(minX, hull[i * 2]);
+            minY = Math.min(minY, hull[i * 2 + 1]);
+            maxX = Math.max(maxX, hull[i * 2]);
+            maxY = Math.max(maxY, hull[i * 2 + 1]);
+        }
+
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            float[] bounds = walls.nodeBounds;
+            if (bounds[node * 4] > maxX || bounds[node * 4 + 2] < minX ||
+            bounds[node * 4 + 1] > maxY || bounds[node * 4 + 3] < minY) {
+                continue;
+            }
+            int start = walls.nodeStart[node];
+            int count = walls.nodeCount[node];
+            if (count == 0) {
+                // Only the root of empty walls is an empty leaf.
+                if (walls.segmentCount > 0) {
+                    stack[stackSize++] = start;
+                    stack[stackSize++] = start + 1;
+                }
+                continue;
+            }
+            for (int i = start; i < start + count; i++) {
+                int segment = walls.segmentOrder[i];
+                if (hullIntersects(walls.segments, segment)) {
+                    return segment;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the four corners of the vehicle's box to the point list, rotated the same way as
+     * Vehicle.getBounds().
+     */
+    private void addCorners(int offset, double x, double y, double rot, double halfLength,
+    double halfWidth) {
+        double cos = Math.cos(-rot);
+        double sin = Math.sin(-rot);
+        for (int i = 0; i < 4; i++) {
+            double cornerX = i < 2 ? halfLength : -halfLength;
+            double cornerY = (0 < i && i < 3) ? -halfWidth : halfWidth;
+            points[offset + i * 2] = cos * cornerX - sin * cornerY + x;
+            points[offset + i * 2 + 1] = sin * cornerX + cos * cornerY + y;
+        }
+    }
+
+    /**
+     * Builds the convex hull of the eight corners with the monotone chain algorithm.
+     */
+    private void buildHull() {
+        // Insertion sort the points by x, then y.
+        for (int i = 1; i < 8; i++) {
+            double px = points[i * 2];
+            double py = points[i * 2 + 1];
+            int j = i - 1;
+            while (j >= 0 && (points[j * 2] > px || (points[j * 2] == px &&
+            points[j * 2 + 1] > py))) {
+                points[(j + 1) * 2] = points[j * 2];
+                points[(j + 1) * 2 + 1] = points[j * 2 + 1];
+                j--;
+            }
+            points[(j + 1) * 2] = px;
+            points[(j + 1) * 2 + 1] = py;
+        }
+
+        hullSize = 0;
+        // Lower hull, then upper hull.
+        for (int pass = 0; pass < 2; pass++) {
+            int base = hullSize;
+            for (int n = 0; n < 8; n++) {
+                int i = pass == 0 ? n : 7 - n;
+                double px = points[i * 2];
+                double py = points[i * 2 + 1];
+                while (hullSize - base >= 2 && cross(hullSize - 2, hullSize - 1, px, py) <= 0) {
+                    hullSize--;
+                }
+                hull[hullSize * 2] = px;
+                hull[hullSize * 2 + 1] = py;
+                hullSize++;
+            }
+            // The last point of each half is the first point of the other.
+            hullSize--;
+        }
+    }
+
+    private double cross(int a, int b, double px, double py) {
+        return (hull[b * 2] - hull[a * 2]) * (py - hull[a * 2 + 1]) -
+        (hull[b * 2 + 1] - hull[a * 2 + 1]) * (px - hull[a * 2]);
+    }
+
+    /**
+     * Tests the hull against a segment with the separating axis theorem.
+     */
+    private boolean hullIntersects(float[] segments, int segment) {
+        double ax = segments[segment * 4];
+        double ay = segments[segment * 4 + 1];
+        double bx = segments[segment * 4 + 2];
+        double by = segments[segment * 4 + 3];
+
+        // The segment's normal.
+        if (isSeparated(-(by - ay), bx - ax, ax, ay, bx, by)) {
+            return false;
+        }
+        // The normals of the hull's edges.
+        for (int i = 0; i < hullSize; i++) {
+            int j = (i + 1) % hullSize;
+            double edgeX = hull[j * 2] - hull[i * 2];
+            double edgeY = hull[j * 2 + 1] - hull[i * 2 + 1];
+            if (isSeparated(-edgeY, edgeX, ax, ay, bx, by)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the hull and the segment don't overlap when projected onto an axis.
+     */
+    private boolean isSeparated(double axisX, double axisY, double ax, double ay, double bx,
+    double by) {
+        double hullMin = Double.MAX_VALUE;
+        double hullMax = -Double.MAX_VALUE;
+        for (int i = 0; i < hullSize; i++) {
+            double p = hull[i * 2] * axisX + hull[i * 2 + 1] * axisY;
+            hullMin = Math.min(hullMin, p);
+            hullMax = Math.max(hullMax, p);
+        }
+        double a = ax * axisX + ay * axisY;
+        double b = bx * axisX + by * axisY;
+        return Math.max(a, b) < hullMin || Math.min(a, b) > hullMax;
+    }
+}
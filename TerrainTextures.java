@@ -0,0 +1,101 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * The textures tracks are drawn with, as a lookup table from terrain class to texture. Each
+ * texture is read into an array of pixels once, so texturing a pixel is a couple of array
+ * reads. Safe to use from several threads at once.
+ */
+public class TerrainTextures {
+
+    // The pixels of each terrain class's texture, row by row, with the texture's size.
+    private final int[][] textures;
+    private final int[] textureWidths;
+    private final int[] textureHeights;
+
+    /**
+     * Loads the textures, and fills in the texture of every terrain class.
+     *
+     * @throws IOException if a texture can't be read.
+     */
+    public TerrainTextures() throws IOException {
+        int classCount = Track.TERRAIN_CHECKPOINT + Track.MAX_CHECKPOINTS;
+        textures = new int[classCount][];
+        textureWidths = new int[classCount];
+        textureHeights = new int[classCount];
+        setTexture(Track.TERRAIN_GRASS, Track.TERRAIN_GRASS, "textures/grassTex.png");
+        setTexture(Track.TERRAIN_TRACK, Track.TERRAIN_TRACK, "textures/trackTex.png");
+        setTexture(Track.TERRAIN_BOOST, Track.TERRAIN_BOOST, "textures/boostTex.png");
+        setTexture(Track.TERRAIN_PIT, Track.TERRAIN_PIT, "textures/pitTex.png");
+        setTexture(Track.TERRAIN_WALL, Track.TERRAIN_WALL, "textures/wallTex.png");
+        // The first checkpoint is the goal.
+        setTexture(Track.TERRAIN_CHECKPOINT, Track.TERRAIN_CHECKPOINT, "textures/goalTex.png");
+        setTexture(Track.TERRAIN_CHECKPOINT + 1, classCount - 1, "textures/chkptTex.png");
+    }
+
+    /**
+     * Loads a texture for a range of terrain classes.
+     *
+     * @param firstClass the first terrain class to use the texture.
+     * @param lastClass the last terrain class to use the texture.
+     * @param path the path to the texture image.
+     * @throws IOException if the texture can't be read.
+     */
+    private void setTexture(int firstClass, int lastClass, String path) throws IOException {
+        // The pixels are read, so keep every color the file has, whatever the screen shows.
+        BufferedImage texture = TextureCache.acquire(path, false);
+        int textureWidth = texture.getWidth();
+        int textureHeight = texture.getHeight();
+        int[] pixels = texture.getRGB(0, 0, textureWidth, textureHeight, null, 0, textureWidth);
+        // The pixels are copied, so the image can go back to the cache.
+        TextureCache.release(texture);
+        for (int terrainClass = firstClass; terrainClass <= lastClass; terrainClass++) {
+            textures[terrainClass] = pixels;
+            textureWidths[terrainClass] = textureWidth;
+            textureHeights[terrainClass] = textureHeight;
+        }
+    }
+
+    /**
+     * Gets the texture color of a pixel of a track from its terrain class.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @param terrainClass the terrain class of the pixel.
+     * @return the texture color of the pixel.
+     */
+    public int getColor(int x, int y, int terrainClass) {
+        int textureWidth = textureWidths[terrainClass];
+        return textures[terrainClass][y % textureHeights[terrainClass] * textureWidth +
+        x % textureWidth];
+    }
+
+    /**
+     * Textures an area of a track from its terrain classes.
+     *
+     * @param terrain the terrain classes of the area, row by row.
+     * @param terrainOffset the index of the area's top-left pixel in the terrain array.
+     * @param terrainStride the length of a row of the terrain array.
+     * @param x the x-coordinate of the area's left edge on the track.
+     * @param y the y-coordinate of the area's top edge on the track.
+     * @param width the width of the area.
+     * @param height the height of the area.
+     * @param pixels the array to write the texture colors to, row by row, one area wide.
+     * @param pixelOffset the index to write the area's top-left pixel to.
+     */
+    public void texture(byte[] terrain, int terrainOffset, int terrainStride, int x, int y,
+    int width, int height, int[] pixels, int pixelOffset) {
+        for (int row = 0; row < height; row++) {
+            int terrainIndex = terrainOffset + row * terrainStride;
+            int pixelIndex = pixelOffset + row * width;
+            int trackY = y + row;
+            for (int column = 0; column < width; column++) {
+                int terrainClass = terrain[terrainIndex + column] & 0xFF;
+                int textureWidth = textureWidths[terrainClass];
+                pixels[pixelIndex + column] = textures[terrainClass][
+                trackY % textureHeights[terrainClass] * textureWidth +
+                (x + column) % textureWidth];
+            }
+        }
+    }
+}
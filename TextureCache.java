@@ -0,0 +1,203 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Texture images shared by the whole game, so each texture file is decoded once however many
+ * tracks, menus and vehicles use it. Textures are found by path and last modified time, so a
+ * texture file changed on disk is read again the next time it's asked for.
+ *
+ * Each texture handed out counts as a reference until it's released. Textures nobody holds are
+ * kept too, in case they're needed again, until they take up more than a set amount of memory;
+ * then the least recently used are let go first.
+ *
+ * Textures are converted to the screen's own format when there is a screen, so Java2D can keep
+ * them in video memory. Textures whose pixels are read instead of drawn can be asked for as
+ * decoded, since the screen's format may have fewer colors. Either way they're shared, so they
+ * must not be modified.
+ */
+public class TextureCache {
+
+    // How much memory textures nobody holds may take up by default (in bytes).
+    public static final long DEFAULT_MAX_UNUSED_BYTES = 32L << 20;
+
+    // Textures by path and modified time, least recently used first.
+    private static final LinkedHashMap<String, Entry> entries =
+    new LinkedHashMap<>(16, 0.75f, true);
+    // The same textures, by image, to find them again when released.
+    private static final Map<BufferedImage, Entry> entriesByImage = new IdentityHashMap<>();
+    private static long maxUnusedBytes = DEFAULT_MAX_UNUSED_BYTES;
+    private static long unusedBytes;
+    private static long loadCount;
+    private static long hitCount;
+
+    /**
+     * A texture and how many are holding it.
+     */
+    private static class Entry {
+        private final BufferedImage image;
+        private final long bytes;
+        private int references;
+
+        private Entry(BufferedImage image) {
+            this.image = image;
+            // Textures are stored as 4 bytes per pixel in nearly every format the screen uses.
+            bytes = 4L * image.getWidth() * image.getHeight();
+        }
+    }
+
+    private TextureCache() {
+        // Only used statically.
+    }
+
+    /**
+     * Gets a texture to draw, in the screen's format, reading it the first time it's asked for
+     * (or if its file has changed since). The texture should be released once it's no longer
+     * needed.
+     *
+     * @param path the path to the texture file.
+     * @return the texture, which must not be modified.
+     * @throws IOException if the texture can't be read.
+     */
+    public static BufferedImage acquire(String path) throws IOException {
+        return acquire(path, true);
+    }
+
+    /**
+     * Gets a texture, reading it the first time it's asked for (or if its file has changed
+     * since). The texture should be released once it's no longer needed.
+     *
+     * @param path the path to the texture file.
+     * @param compatible whether to convert the texture to the screen's format, to be drawn
+     * (or keep it as decoded, with every color of the file, to read its pixels).
+     * @return the texture, which must not be modified.
+     * @throws IOException if the texture can't be read.
+     */
+    public static synchronized BufferedImage acquire(String path, boolean compatible)
+    throws IOException {
+        Path file = Paths.get(path).toAbsolutePath().normalize();
+        String key = file + "@" + Files.getLastModifiedTime(file).toMillis() +
+        (compatible ? "" : "@decoded");
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            BufferedImage image = ImageIO.read(file.toFile());
+            if (image == null) {
+                throw new IOException("Can't read the texture " + path + ".");
+            }
+            entry = new Entry(compatible ? toCompatibleImage(image) : image);
+            entries.put(key, entry);
+            entriesByImage.put(entry.image, entry);
+            loadCount++;
+        } else {
+            hitCount++;
+            if (entry.references == 0) {
+                unusedBytes -= entry.bytes;
+            }
+        }
+        entry.references++;
+        return entry.image;
+    }
+
+    /**
+     * Gives back a texture from acquire(). Once every holder has released it, it may be let go.
+     *
+     * @param image the texture to release (or null, to do nothing).
+     */
+    public static synchronized void release(BufferedImage image) {
+        Entry entry = image == null ? null : entriesByImage.get(image);
+        if (entry == null || entry.references == 0) {
+            return;
+        }
+        entry.references--;
+        if (entry.references == 0) {
+            unusedBytes += entry.bytes;
+            evict();
+        }
+    }
+
+    /**
+     * Sets how much memory textures nobody holds may take up, letting go of the least recently
+     * used until they fit.
+     *
+     * @param bytes the most memory for unused textures, in bytes (0 keeps none).
+     */
+    public static synchronized void setMaxUnusedBytes(long bytes) {
+        maxUnusedBytes = Math.max(0, bytes);
+        evict();
+    }
+
+    /**
+     * Lets go of the least recently used textures nobody holds, until the rest fit.
+     */
+    private static void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (unusedBytes > maxUnusedBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.references == 0) {
+                iterator.remove();
+                entriesByImage.remove(entry.image);
+                unusedBytes -= entry.bytes;
+                // Let go of any copy Java2D keeps in video memory, too.
+                entry.image.flush();
+            }
+        }
+    }
+
+    /**
+     * Converts an image to the default screen's format, if there's a screen.
+     *
+     * @param image the image to convert.
+     * @return the image in the screen's format (or the image itself, if there's no screen).
+     */
+    private static BufferedImage toCompatibleImage(BufferedImage image) {
+        GraphicsConfiguration config = TrackTiles.getDefaultConfiguration();
+        if (config == null || image.getColorModel().equals(config.getColorModel(
+        image.getTransparency()))) {
+            return image;
+        }
+        BufferedImage compatible = config.createCompatibleImage(image.getWidth(),
+        image.getHeight(), image.getTransparency());
+        // Only draw to the texture through its graphics, so Java2D can keep managing it.
+        Graphics2D graphics = compatible.createGraphics();
+        graphics.setComposite(AlphaComposite.Src);
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return compatible;
+    }
+
+    /**
+     * Gets the number of textures kept, held or not.
+     *
+     * @return the cached texture count.
+     */
+    public static synchronized int getCachedCount() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of times a texture was read from its file.
+     *
+     * @return the load count.
+     */
+    public static synchronized long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * Gets the number of times a texture was found already loaded.
+     *
+     * @return the hit count.
+     */
+    public static synchronized long getHitCount() {
+        return hitCount;
+    }
+}
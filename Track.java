@@ -1,5 +1,4 @@
 import java.io.*;
-import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -7,6 +6,7 @@ import javax.imageio.*;
 import java.awt.image.*;
 import java.awt.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 public class Track {
 
@@ -19,6 +19,38 @@ public class Track {
     // Checkpoints are blue, with green value representing the checkpoint index.
     // (so, up to 255 checkpoints allowed).
 
+    // Terrain classes stored in the terrain grid. Unknown colors are treated as grass.
+    public static final int TERRAIN_GRASS = 0;
+    public static final int TERRAIN_TRACK = 1;
+    public static final int TERRAIN_BOOST = 2;
+    public static final int TERRAIN_PIT = 3;
+    public static final int TERRAIN_WALL = 4;
+    // Checkpoints are stored as TERRAIN_CHECKPOINT + (checkpoint index - 1), so the goal
+    // (checkpoint 1) is TERRAIN_CHECKPOINT itself.
+    public static final int TERRAIN_CHECKPOINT = 5;
+    public static final int MAX_CHECKPOINTS = 256 - TERRAIN_CHECKPOINT;
+
+    // Bit layers generated from the terrain grid.
+    // Walls, including the outer edge of the track.
+    public static final int LAYER_WALL = 0;
+    // Terrain driven at full speed (track, pits and the goal).
+    public static final int LAYER_TRACK = 1;
+    public static final int LAYER_BOOST = 2;
+    // Terrain driven at grass speed (everything else).
+    public static final int LAYER_GRASS = 3;
+    public static final int LAYER_PIT = 4;
+    public static final int LAYER_CHECKPOINT = 5;
+    private static final int LAYER_COUNT = 6;
+
+    // The starting grid behind the starting position (in pixels).
+    private static final int GRID_ROW_SPACING = 100;
+    private static final int GRID_SIDE_SPACING = 24;
+    private static final int GRID_CLEARANCE = 45;
+
+    // Textured tracks with more pixels than this are paged in from a tile file as they're
+    // drawn, instead of being kept textured in memory. Only the textured track is paged.
+    public static final long PAGED_PIXEL_COUNT = 4096L * 4096;
+
     // Loaded from track file
     private String trackId;
     private short lapCount;
@@ -28,82 +60,256 @@ public class Track {
     private String name;
     private String creator;
     private BufferedImage trackData;
+    private int width;
+    private int height;
+
+    // One terrain class per pixel, generated once when the track is loaded.
+    private byte[] terrainGrid;
+    private BitLayer[] layers;
+    private WallDistanceField wallDistance;
+    private WallGeometry wallGeometry;
+    private ProgressField progressField;
 
-    // Generated while scanning colors for textured track.
+    // Generated while classifying the track data.
     private int checkpointCount;
-    private BufferedImage texturedTrack;
+    private TrackTiles trackTiles;
+    private PagedTrackTiles pagedTiles;
 
-    private BufferedImage boostTex;
-    private BufferedImage chkptTex;
-    private BufferedImage goalTex;
-    private BufferedImage grassTex;
-    private BufferedImage pitTex;
-    private BufferedImage trackTex;
-    private BufferedImage wallTex;
+    private TerrainTextures textures;
 
+    /**
+     * Loads a track, along with its textures.
+     * 
+     * @param track the path to the track file.
+     */
     public Track(Path track) {
+        this(track, true);
+    }
+
+    /**
+     * Loads a track. Tracks loaded without textures can be driven but not drawn.
+     * 
+     * @param track the path to the track file.
+     * @param textured whether to load the textures and generate the textured track.
+     */
+    public Track(Path track, boolean textured) {
+        this(track, textured, false);
+    }
+
+    /**
+     * Loads a track. Tracks loaded without textures can be driven but not drawn. Big textured
+     * tracks are always paged: rather than keeping the whole textured track in memory, the
+     * tiles in view are textured from the track's tile file as they're drawn. The tile file is
+     * written the first time the track is loaded, and later loads read the terrain from it
+     * instead of decoding the track image. A paged track should be closed once it's done with.
+     * 
+     * Everything but the textured track is still kept whole in memory: the terrain grid, bit
+     * layers and wall distance field take about 4 bytes per pixel, plus 2 per checkpoint once
+     * the track is measured (see getProgressField(), which won't measure tracks too big for
+     * it). The first load also decodes the whole track image, but only until its terrain is
+     * classified. A 16384 x 16384 track loads in around 1.25 GB of heap.
+     * 
+     * @param track the path to the track file.
+     * @param textured whether to load the textures and generate the textured track.
+     * @param paged whether to page the textured track even if it's small.
+     */
+    public Track(Path track, boolean textured, boolean paged) {
+        this(track, textured, paged, null);
+    }
+
+    /**
+     * Loads a track, reporting how far along the load is as it goes (see above).
+     * 
+     * @param track the path to the track file.
+     * @param textured whether to load the textures and generate the textured track.
+     * @param paged whether to page the textured track even if it's small.
+     * @param loader the loader to report progress to (or null).
+     * @throws CancellationException if the loader cancels the load.
+     */
+    public Track(Path track, boolean textured, boolean paged, TrackLoader loader) {
+        this(track, textured, paged, loader, true);
+    }
+
+    /**
+     * Loads a track (see above). If the track has been compiled (see CompiledTrack) since the
+     * track file last changed, the terrain and any fields compiled in are read from the
+     * compiled track instead of being generated.
+     * 
+     * @param track the path to the track file.
+     * @param textured whether to load the textures and generate the textured track.
+     * @param paged whether to page the textured track even if it's small.
+     * @param loader the loader to report progress to (or null).
+     * @param compiled whether to use the compiled track, if it's up to date.
+     * @throws CancellationException if the loader cancels the load.
+     * @throws UncheckedIOException if the track can't be read and there's a loader to report
+     * it to (without a loader, the game exits).
+     */
+    public Track(Path track, boolean textured, boolean paged, TrackLoader loader, 
+    boolean compiled) {
+        TrackTileFile tileFile = null;
+        CompiledTrack compiledTrack = null;
         try {
-            byte[] trackBytes = Files.readAllBytes(track);
-            ByteArrayInputStream trackStream = new ByteArrayInputStream(trackBytes);
-            
-            // Check magic string
-            char[] magicReq = new char[] {'T', 'R', 'A', 'C'};
-            byte[] magicDat = trackStream.readNBytes(4);
-            for (int i = 0; i < magicReq.length; i++) {
-                if (magicReq[i] != (char)magicDat[i]) {
-                    throw new IOException("The provided track file is invalid.");
+            reportProgress(loader, 0, "Reading the track");
+            TrackInfo info = new TrackInfo(track);
+            trackId = info.getTrackId();
+            lapCount = info.getLapCount();
+            int[] carStart = info.getCarStartPosition();
+            carStartX = carStart[0];
+            carStartY = carStart[1];
+            carStartDeg = carStart[2];
+            name = info.getName();
+            creator = info.getCreator();
+
+            if (textured) {
+                textures = new TerrainTextures();
+            }
+
+            Path compiledPath = CompiledTrack.getDefaultPath(track);
+            if (compiled && Files.exists(compiledPath)) {
+                compiledTrack = openCompiledTrack(compiledPath, track);
+            }
+            Path tilePath = TrackTileFile.getDefaultPath(trackId);
+            if (textured && Files.exists(tilePath)) {
+                tileFile = openTileFile(tilePath, track);
+            }
+            if (compiledTrack != null) {
+                width = compiledTrack.getWidth();
+                height = compiledTrack.getHeight();
+                terrainGrid = compiledTrack.getTerrainGrid();
+                checkpointCount = compiledTrack.getCheckpointCount();
+            } else if (tileFile != null) {
+                // The terrain was saved when the track was first loaded.
+                width = tileFile.getWidth();
+                height = tileFile.getHeight();
+                terrainGrid = tileFile.readTerrainGrid();
+                checkpointCount = tileFile.getCheckpointCount();
+            } else {
+                // The remaining data is the track image; load it in!
+                try (InputStream imageStream = info.openImage()) {
+                    trackData = ImageIO.read(imageStream);
                 }
+                width = trackData.getWidth();
+                height = trackData.getHeight();
+                reportProgress(loader, 0.15, "Classifying the terrain");
+                generateTerrainGrid();
+                // The track image isn't needed once the terrain has been classified.
+                trackData = null;
+            }
+            if (textured && tileFile == null && 
+            (paged || (long)width * height > PAGED_PIXEL_COUNT)) {
+                tileFile = createTileFile(tilePath, track);
             }
 
-            // Get trackId
-            StringBuilder trackIdBuilder = new StringBuilder();
-            byte[] trackIdDat = trackStream.readNBytes(16);
-            for (int i = 0; i < trackIdDat.length; i++) {
-                trackIdBuilder.append(Character.toString((char)trackIdDat[i]));
+            reportProgress(loader, 0.25, "Finding the walls");
+            generateLayers();
+            if (compiledTrack != null && compiledTrack.getWallDistanceField() != null) {
+                wallDistance = compiledTrack.getWallDistanceField();
+            } else {
+                wallDistance = new WallDistanceField(layers[LAYER_WALL], width, height);
             }
-            trackId = trackIdBuilder.toString();
-
-            // Get lap count
-            lapCount = ByteBuffer.wrap(trackStream.readNBytes(2)).getShort();
-
-            // Get vehicle starting position
-            carStartX = ByteBuffer.wrap(trackStream.readNBytes(4)).getInt();
-            carStartY = ByteBuffer.wrap(trackStream.readNBytes(4)).getInt();
-            carStartDeg = ByteBuffer.wrap(trackStream.readNBytes(4)).getInt();
-
-            // Get track name
-            int nameSize = ByteBuffer.wrap(trackStream.readNBytes(4)).getInt();
-            StringBuilder nameBuilder = new StringBuilder();
-            byte[] nameDat = trackStream.readNBytes(nameSize);
-            for (int i = 0; i < nameDat.length; i++) {
-                nameBuilder.append(Character.toString((char)nameDat[i]));
+            wallGeometry = new WallGeometry(layers[LAYER_WALL], width, height);
+            // Otherwise the progress field is only measured once something needs it.
+            if (compiledTrack != null) {
+                progressField = compiledTrack.getProgressField();
             }
-            name = nameBuilder.toString();
-
-            // Get creator name
-            int creatorSize = ByteBuffer.wrap(trackStream.readNBytes(4)).getInt();
-            StringBuilder creatorBuilder = new StringBuilder();
-            byte[] creatorDat = trackStream.readNBytes(creatorSize);
-            for (int i = 0; i < creatorDat.length; i++) {
-                creatorBuilder.append(Character.toString((char)creatorDat[i]));
+            reportProgress(loader, 0.5, "Texturing the track");
+        } catch (IOException ex) {
+            if (loader == null) {
+                ex.printStackTrace();
+                System.exit(-1);
             }
-            creator = creatorBuilder.toString();
-
-            // The remaining data is the track image; load it in!
-            trackData = ImageIO.read(trackStream);
-
-            boostTex = ImageIO.read(new File("textures/boostTex.png"));
-            chkptTex = ImageIO.read(new File("textures/chkptTex.png"));
-            goalTex = ImageIO.read(new File("textures/goalTex.png"));
-            grassTex = ImageIO.read(new File("textures/grassTex.png"));
-            pitTex = ImageIO.read(new File("textures/pitTex.png"));
-            trackTex = ImageIO.read(new File("textures/trackTex.png"));
-            wallTex = ImageIO.read(new File("textures/wallTex.png"));
+            // The loader reports the failure, and the game goes on.
+            closeTileFile(tileFile);
+            throw new UncheckedIOException(ex);
+        } catch (CancellationException ex) {
+            closeTileFile(tileFile);
+            throw ex;
+        }
+        if (textured && tileFile != null) {
+            pagedTiles = new PagedTrackTiles(textures, tileFile);
+        } else if (textured) {
+            generateTexturedTrack();
+        }
+    }
+
+    /**
+     * Reports how far along the load is, if anyone is listening.
+     * 
+     * @param loader the loader to report to (or null).
+     * @param progress how much of the load is done (0 to 1).
+     * @param stage what the load is doing now.
+     * @throws CancellationException if the loader cancels the load.
+     */
+    private static void reportProgress(TrackLoader loader, double progress, String stage) {
+        if (loader != null) {
+            loader.reportProgress(progress, stage);
+        }
+    }
+
+    /**
+     * Closes the tile file of a load that didn't finish.
+     * 
+     * @param tileFile the tile file (or null, if none was opened).
+     */
+    private static void closeTileFile(TrackTileFile tileFile) {
+        if (tileFile != null) {
+            try {
+                tileFile.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Opens a track's compiled track, if it's still up to date.
+     * 
+     * @param compiledPath the path to the compiled track.
+     * @param track the path to the track file.
+     * @return the compiled track (or null, if it's out of date or can't be read).
+     */
+    private static CompiledTrack openCompiledTrack(Path compiledPath, Path track) {
+        try {
+            return new CompiledTrack(compiledPath, track);
+        } catch (IOException ex) {
+            // The track is loaded from the track file instead.
+            return null;
+        }
+    }
+
+    /**
+     * Opens a track's tile file, if it's still up to date.
+     * 
+     * @param tilePath the path to the tile file.
+     * @param track the path to the track file.
+     * @return the tile file (or null, if it's out of date or can't be read).
+     */
+    private static TrackTileFile openTileFile(Path tilePath, Path track) {
+        try {
+            return new TrackTileFile(tilePath, track);
         } catch (IOException ex) {
+            // The tile file is made again from the track image.
+            return null;
+        }
+    }
+
+    /**
+     * Writes the terrain grid to a tile file and opens it.
+     * 
+     * @param tilePath the path to the tile file.
+     * @param track the path to the track file.
+     * @return the tile file (or null, if it can't be written).
+     */
+    private TrackTileFile createTileFile(Path tilePath, Path track) {
+        try {
+            TrackTileFile.create(tilePath, track, terrainGrid, width, height, checkpointCount);
+            return new TrackTileFile(tilePath, track);
+        } catch (IOException ex) {
+            // Keep the whole textured track in memory instead.
+            System.err.println("Can't save the track's tiles!");
             ex.printStackTrace();
-            System.exit(-1);
+            return null;
         }
-        generateTexturedTrack();
     }
 
     /**
@@ -112,7 +318,7 @@ public class Track {
      * @return the track width.
      */
     public int getWidth() {
-        return trackData.getWidth();
+        return width;
     }
 
     /**
@@ -121,7 +327,7 @@ public class Track {
      * @return the track height.
      */
     public int getHeight() {
-        return trackData.getHeight();
+        return height;
     }
 
     /**
@@ -160,6 +366,32 @@ public class Track {
         return new int [] {carStartX, carStartY, carStartDeg};
     }
 
+    /**
+     * Gets a starting position on the grid behind the track's starting position, in rows of
+     * two. Positions too close to a wall fall back to the starting position itself.
+     * 
+     * @param slot the place on the grid (0 is the starting position).
+     * @return an array of {x-coordinate, y-coordinate, rotation in degrees}.
+     */
+    public int[] getGridPosition(int slot) {
+        if (slot <= 0) {
+            return getCarStartPosition();
+        }
+        double rotation = Math.toRadians(carStartDeg);
+        double back = GRID_ROW_SPACING * ((slot + 1) / 2);
+        double side = GRID_SIDE_SPACING * (slot % 2 == 1 ? 1 : -1);
+        // Vehicles face {cos, -sin} on screen, so their side is {sin, cos}.
+        int x = (int)Math.round(carStartX - Math.cos(rotation) * back + 
+        Math.sin(rotation) * side);
+        int y = (int)Math.round(carStartY + Math.sin(rotation) * back + 
+        Math.cos(rotation) * side);
+        if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight() ||
+        wallDistance.getDistance(x, y) < GRID_CLEARANCE) {
+            return getCarStartPosition();
+        }
+        return new int[] {x, y, carStartDeg};
+    }
+
     /**
      * Gets the required lap count for the track.
      * 
@@ -191,9 +423,10 @@ public class Track {
      * Saves the given entry to the leaderboard.
      * 
      * @param entry the leaderboard entry to save.
+     * @return whether the entry made it onto the leaderboard.
      */
-    public void addLeaderboardEntry(LeaderboardEntry entry) {
-        RacetrackGame.leaderboard.saveEntry(trackId, entry);
+    public boolean addLeaderboardEntry(LeaderboardEntry entry) {
+        return RacetrackGame.leaderboard.saveEntry(trackId, entry);
     }
 
     /**
@@ -203,7 +436,33 @@ public class Track {
      * @param y the y-coordinate of the image to draw in the top-left corner.
      */
     public void drawTrack(Graphics2D buf, int x, int y) {
-        buf.drawImage(texturedTrack, -x, -y, null);
+        drawTrack(buf, x, y, getWidth(), getHeight());
+    }
+
+    /**
+     * Draws the part of the track in view to the screen, touching only the tiles in view.
+     * 
+     * @param x the x-coordinate of the image to draw in the top-left corner.
+     * @param y the y-coordinate of the image to draw in the top-left corner.
+     * @param viewWidth the width of the view.
+     * @param viewHeight the height of the view.
+     */
+    public void drawTrack(Graphics2D buf, int x, int y, int viewWidth, int viewHeight) {
+        if (pagedTiles != null) {
+            pagedTiles.draw(buf, x, y, viewWidth, viewHeight);
+        } else {
+            trackTiles.draw(buf, x, y, viewWidth, viewHeight);
+        }
+    }
+
+    /**
+     * Closes a paged track's tile file and stops its prefetching thread. Does nothing for
+     * tracks that aren't paged. A closed track can still be driven, but not drawn.
+     */
+    public void close() {
+        if (pagedTiles != null) {
+            pagedTiles.close();
+        }
     }
 
     /**
@@ -212,64 +471,186 @@ public class Track {
      * @return the index of the checkpoint (or -1, if not a checkpoint).
      */
     public static int isCheckpointColor(int color) {
-        Color toCheck = new Color(color);
-        if (toCheck.getRed() == 0 && toCheck.getBlue() == 255) {
-            return toCheck.getGreen() + 1;
+        // Red must be 0 and blue must be 255 (alpha is ignored).
+        if ((color & 0xFF00FF) == 0x0000FF) {
+            return ((color >> 8) & 0xFF) + 1;
         }
         return -1;
     }
 
-    private int getTextureColor(int x, int y, int trackColor) {
-        if (trackColor == BOOST_COLOR) {
-            return boostTex.getRGB(x % boostTex.getWidth(), y % boostTex.getHeight());
-        } else if (trackColor == GOAL_COLOR) {
-            return goalTex.getRGB(x % goalTex.getWidth(), y % goalTex.getHeight());
-        } else if (trackColor == GRASS_COLOR) {
-            return grassTex.getRGB(x % grassTex.getWidth(), y % grassTex.getHeight());
-        } else if (trackColor == PIT_COLOR) {
-            return pitTex.getRGB(x % pitTex.getWidth(), y % pitTex.getHeight());
-        } else if (trackColor == TRACK_COLOR) {
-            return trackTex.getRGB(x % trackTex.getWidth(), y % trackTex.getHeight());
-        } else if (trackColor == WALL_COLOR) {
-            return wallTex.getRGB(x % wallTex.getWidth(), y % wallTex.getHeight());
-        } else {
-            // if checkpoint
-            int checkpoint = isCheckpointColor(trackColor);
-            if (checkpoint != -1) {
-                // store checkpoint if it's larger than the current count.
-                checkpointCount = checkpoint > checkpointCount ? checkpoint : checkpointCount;
-                return chkptTex.getRGB(x % chkptTex.getWidth(), y % chkptTex.getHeight());
-            }
-            // Default texture is grass.
-            return grassTex.getRGB(x % grassTex.getWidth(), y % grassTex.getHeight());
+    /**
+     * Gets the terrain class of a track color.
+     * 
+     * @param color the color to classify.
+     * @return the terrain class of the color.
+     */
+    public static int getTerrainClass(int color) {
+        int checkpoint = isCheckpointColor(color);
+        if (checkpoint != -1) {
+            return TERRAIN_CHECKPOINT + checkpoint - 1;
+        } else if (color == TRACK_COLOR) {
+            return TERRAIN_TRACK;
+        } else if (color == BOOST_COLOR) {
+            return TERRAIN_BOOST;
+        } else if (color == PIT_COLOR) {
+            return TERRAIN_PIT;
+        } else if (color == WALL_COLOR) {
+            return TERRAIN_WALL;
         }
+        // Default terrain is grass.
+        return TERRAIN_GRASS;
     }
 
-    private void generateTexturedTrack() {
-        texturedTrack = new BufferedImage(trackData.getWidth(), trackData.getHeight(), 
-        BufferedImage.TYPE_INT_ARGB);
-        for (int y = 0; y < trackData.getHeight(); y++) {
-            for (int x = 0; x < trackData.getWidth(); x++) {
-                texturedTrack.setRGB(x, y, getTextureColor(x, y, trackData.getRGB(x, y)));
+    /**
+     * Gets the checkpoint index of a terrain class.
+     * 
+     * @param terrainClass the terrain class to check.
+     * @return the index of the checkpoint (or -1, if not a checkpoint).
+     */
+    public static int getCheckpointIndex(int terrainClass) {
+        if (terrainClass >= TERRAIN_CHECKPOINT) {
+            return terrainClass - TERRAIN_CHECKPOINT + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the terrain class of the given pixel of the track.
+     * 
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the terrain class of the pixel.
+     */
+    public int getTerrainClass(int x, int y) {
+        return terrainGrid[y * width + x] & 0xFF;
+    }
+
+    /**
+     * Gets the terrain grid of the track. Each pixel is stored as one terrain class, row by row,
+     * and should be read as an unsigned byte. The returned array must not be modified.
+     * 
+     * @return the terrain grid.
+     */
+    public byte[] getTerrainGrid() {
+        return terrainGrid;
+    }
+
+    /**
+     * Gets one of the bit layers of the track (LAYER_WALL, LAYER_TRACK, ...).
+     * 
+     * @param layer the layer to get.
+     * @return the bit layer.
+     */
+    public BitLayer getLayer(int layer) {
+        return layers[layer];
+    }
+
+    /**
+     * Gets the signed distance field of the track's walls (including the edge of the track).
+     * 
+     * @return the wall distance field.
+     */
+    public WallDistanceField getWallDistanceField() {
+        return wallDistance;
+    }
+
+    /**
+     * Gets how far every pixel of the track is from each checkpoint. Unless the track was
+     * compiled with it, the field is measured the first time it's needed (taking a while on
+     * big tracks), so loads that never race AI opponents don't pay for it. Tracks too big for
+     * their number of checkpoints aren't measured (see ProgressField.MAX_BYTES).
+     * 
+     * @return the progress field (or null, if the track is too big to measure).
+     */
+    public synchronized ProgressField getProgressField() {
+        if (progressField == null &&
+        ProgressField.getSize(width, height, checkpointCount) <= ProgressField.MAX_BYTES) {
+            progressField = new ProgressField(this);
+        }
+        return progressField;
+    }
+
+    /**
+     * Gets the outlines of the track's walls (including the edge of the track) as segments.
+     * 
+     * @return the wall geometry.
+     */
+    public WallGeometry getWallGeometry() {
+        return wallGeometry;
+    }
+
+    /**
+     * Splits the terrain grid into bit layers.
+     */
+    private void generateLayers() {
+        layers = new BitLayer[LAYER_COUNT];
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            layers[i] = new BitLayer(width, height);
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int terrain = terrainGrid[y * width + x] & 0xFF;
+                if (terrain == TERRAIN_WALL || x == 0 || x == width - 1 || 
+                y == 0 || y == height - 1) {
+                    layers[LAYER_WALL].set(x, y);
+                }
+                // The goal is the first checkpoint, and drives like the track.
+                if (terrain == TERRAIN_TRACK || terrain == TERRAIN_PIT || 
+                terrain == TERRAIN_CHECKPOINT) {
+                    layers[LAYER_TRACK].set(x, y);
+                } else if (terrain == TERRAIN_BOOST) {
+                    layers[LAYER_BOOST].set(x, y);
+                } else {
+                    layers[LAYER_GRASS].set(x, y);
+                }
+                if (terrain == TERRAIN_PIT) {
+                    layers[LAYER_PIT].set(x, y);
+                } else if (terrain >= TERRAIN_CHECKPOINT) {
+                    layers[LAYER_CHECKPOINT].set(x, y);
+                }
             }
         }
     }
 
     /**
-     * Gets the track data.
+     * Classifies every pixel of the track data into the terrain grid, and counts the track's
+     * checkpoints.
      * 
-     * @return the track data.
+     * @throws IOException if the track has more checkpoints than the grid can store.
      */
-    public BufferedImage getTrackData() {
-        return trackData;
+    private void generateTerrainGrid() throws IOException {
+        terrainGrid = new byte[width * height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            trackData.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int checkpoint = isCheckpointColor(row[x]);
+                if (checkpoint > MAX_CHECKPOINTS) {
+                    throw new IOException("Tracks may have at most " + MAX_CHECKPOINTS + 
+                    " checkpoints.");
+                }
+                // Pixels of the exact goal color are textured as the goal, so don't count them.
+                if (checkpoint > checkpointCount && row[x] != GOAL_COLOR) {
+                    checkpointCount = checkpoint;
+                }
+                terrainGrid[y * width + x] = (byte)getTerrainClass(row[x]);
+            }
+        }
     }
 
     /**
-     * Gets the textured track.
+     * Gets the textures the track is drawn with.
      * 
-     * @return the textured track.
+     * @return the textures (or null, if the track isn't textured).
      */
-    public BufferedImage getTexturedTrack() {
-        return texturedTrack;
+    public TerrainTextures getTextures() {
+        return textures;
+    }
+
+    /**
+     * Generates the textured track from the terrain grid, straight into its tiles.
+     */
+    private void generateTexturedTrack() {
+        trackTiles = new TrackTiles(textures, terrainGrid, width, height);
     }
 }
@@ -0,0 +1,50 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Compiles track files, so they load without decoding their images or computing their fields
+ * (see CompiledTrack). Each compiled track is written next to its track file.
+ *
+ * Usage: java TrackCompiler [--terrain-only] track...
+ *
+ * With --terrain-only, the wall distance and progress fields are left out, and computed when
+ * the track is loaded instead. That keeps the compiled track to a byte per pixel.
+ *
+ * Close the game first: on Windows, a compiled track the game has open can't be replaced.
+ */
+public class TrackCompiler {
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        boolean fields = true;
+        int argIndex = 0;
+        if (args.length > 0 && args[0].equals("--terrain-only")) {
+            fields = false;
+            argIndex++;
+        }
+        if (argIndex >= args.length) {
+            System.err.println("Usage: java TrackCompiler [--terrain-only] track...");
+            System.exit(-1);
+        }
+
+        for (int i = argIndex; i < args.length; i++) {
+            Path trackFile = Paths.get(args[i]);
+            Path file = CompiledTrack.getDefaultPath(trackFile);
+            long start = System.nanoTime();
+            // Load from the track file itself, not an older compiled track.
+            Track track = new Track(trackFile, false, false, null, false);
+            try {
+                CompiledTrack.compile(track, trackFile, file, fields);
+                System.out.printf("%s -> %s (%d KB) in %.2f s%n", trackFile, file,
+                Files.size(file) >> 10, (System.nanoTime() - start) / 1e9);
+            } catch (IOException ex) {
+                System.err.println("Can't compile " + trackFile + "!");
+                ex.printStackTrace();
+                System.exit(-1);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * The header of a track file: everything about a track but its image. Reading the header only
+ * touches the first few bytes of the file, so a catalog of tracks can be listed without
+ * decoding any of them.
+ *
+ * Track files start with the magic string "TRAC", the track ID (16 characters), the lap count
+ * (short), the starting x, y and rotation in degrees (ints), then the name and the creator,
+ * each as a length (int) followed by that many characters. The rest of the file is the track
+ * image, as a PNG.
+ */
+public class TrackInfo {
+
+    private static final char[] MAGIC = {'T', 'R', 'A', 'C'};
+    private static final int TRACK_ID_LENGTH = 16;
+
+    private final Path path;
+    private String trackId;
+    private short lapCount;
+    private int carStartX;
+    private int carStartY;
+    private int carStartDeg;
+    private String name;
+    private String creator;
+    // Where the track image starts in the file.
+    private long imageOffset;
+
+    /**
+     * Reads the header of a track file.
+     *
+     * @param path the path to the track file.
+     * @throws IOException if the file can't be read or isn't a valid track.
+     */
+    public TrackInfo(Path path) throws IOException {
+        this.path = path;
+        try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path)))) {
+            for (char magic : MAGIC) {
+                if (in.readUnsignedByte() != magic) {
+                    throw new IOException("The provided track file is invalid.");
+                }
+            }
+            trackId = readString(in, TRACK_ID_LENGTH);
+            lapCount = in.readShort();
+            carStartX = in.readInt();
+            carStartY = in.readInt();
+            carStartDeg = in.readInt();
+            int nameSize = in.readInt();
+            name = readString(in, nameSize);
+            int creatorSize = in.readInt();
+            creator = readString(in, creatorSize);
+            imageOffset = MAGIC.length + TRACK_ID_LENGTH + 2 + 4 * 3 + 4 + nameSize + 4 +
+            creatorSize;
+        }
+    }
+
+    /**
+     * Reads a string of one byte characters.
+     *
+     * @param in the stream to read from.
+     * @param length the number of characters.
+     * @return the string.
+     * @throws IOException if the stream ends first.
+     */
+    private static String readString(DataInputStream in, int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("The provided track file is invalid.");
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < data.length; i++) {
+            builder.append(Character.toString((char)data[i]));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Opens the track image of the file.
+     *
+     * @return a stream of the track image, as a PNG.
+     * @throws IOException if the file can't be read.
+     */
+    public InputStream openImage() throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(path));
+        try {
+            in.skipNBytes(imageOffset);
+        } catch (IOException ex) {
+            in.close();
+            throw ex;
+        }
+        return in;
+    }
+
+    /**
+     * Reads a scaled-down, textured copy of the track. Only every few pixels of the track image
+     * are decoded, so a preview of even a big track is quick and small.
+     *
+     * @param textures the textures to draw the preview with.
+     * @param maxSize the longest the preview's sides may be.
+     * @return the preview.
+     * @throws IOException if the track image can't be read.
+     */
+    public BufferedImage readPreview(TerrainTextures textures, int maxSize) throws IOException {
+        BufferedImage image;
+        int step;
+        try (InputStream in = openImage();
+        ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+            if (!readers.hasNext()) {
+                throw new IOException("The provided track file is invalid.");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                step = (Math.max(reader.getWidth(0), reader.getHeight(0)) + maxSize - 1) /
+                maxSize;
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                image = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage preview = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                row[x] = textures.getColor(x * step, y * step, Track.getTerrainClass(row[x]));
+            }
+            preview.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return preview;
+    }
+
+    /**
+     * Gets the path to the track file.
+     *
+     * @return the path.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the track ID.
+     *
+     * @return the track ID.
+     */
+    public String getTrackId() {
+        return trackId;
+    }
+
+    /**
+     * Gets the required lap count for the track.
+     *
+     * @return the total lap count.
+     */
+    public short getLapCount() {
+        return lapCount;
+    }
+
+    /**
+     * Gets the starting position of the vehicle.
+     *
+     * @return the starting position of the vehicle {x, y, deg}.
+     */
+    public int[] getCarStartPosition() {
+        return new int[] {carStartX, carStartY, carStartDeg};
+    }
+
+    /**
+     * Gets the name of the track.
+     *
+     * @return the track name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the creator of the track.
+     *
+     * @return the creator's name.
+     */
+    public String getCreator() {
+        return creator;
+    }
+
+    /**
+     * Gets the leaderboard for the track.
+     *
+     * @return the track's leaderboard.
+     */
+    public List<LeaderboardEntry> getLeaderboard() {
+        return RacetrackGame.leaderboard.getLeaderboard(trackId);
+    }
+}
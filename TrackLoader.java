@@ -0,0 +1,199 @@
+import java.util.concurrent.CancellationException;
+
+/**
+ * Loads a track on a background thread, so the game loop can keep drawing while it loads. The
+ * loader reports how far along the load is, and the load can be cancelled at any point; it
+ * stops at the next stage of the load. A load that fails keeps what went wrong, rather than
+ * taking the game down with it.
+ *
+ * A load can start before the track is chosen, as a preload. It then stops once the track
+ * itself is loaded, and only measures the track for the AI opponents (see
+ * Track.getProgressField()) once play() is called.
+ */
+public class TrackLoader {
+
+    private final TrackInfo info;
+    private final Thread thread;
+
+    private volatile double progress;
+    private volatile String stage = "Starting";
+    private volatile boolean cancelled;
+    private volatile Track track;
+    // What went wrong, if the load failed.
+    private volatile Throwable failure;
+    // Whether the track was chosen to race. Guarded by the loader's lock.
+    private boolean played;
+
+    /**
+     * Starts loading a track, along with its textures. The load isn't done until play() is
+     * called.
+     *
+     * @param info the header of the track to load.
+     */
+    public TrackLoader(TrackInfo info) {
+        this.info = info;
+        thread = new Thread(() -> {
+            try {
+                Track loaded = new Track(info.getPath(), true, false, this);
+                try {
+                    awaitPlay();
+                    reportProgress(0.6, "Measuring the track");
+                    // Races have AI opponents, which drive by the progress field (unless the
+                    // track is too big to measure).
+                    loaded.getProgressField();
+                    finish(loaded);
+                } catch (RuntimeException | Error ex) {
+                    loaded.close();
+                    throw ex;
+                }
+            } catch (CancellationException ex) {
+                // Nothing is kept from a cancelled load.
+            } catch (Throwable ex) {
+                failure = ex;
+            }
+        }, "Track loader");
+        // A load nobody is waiting for shouldn't keep the game open.
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Records how far along the load is. Called by the track as it loads, between stages.
+     *
+     * @param progress how much of the load is done (0 to 1).
+     * @param stage what the load is doing now.
+     * @throws CancellationException if the load was cancelled.
+     */
+    public void reportProgress(double progress, String stage) {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        this.progress = progress;
+        this.stage = stage;
+    }
+
+    /**
+     * Waits until the track is chosen to race.
+     *
+     * @throws CancellationException if the load is cancelled first.
+     */
+    private synchronized void awaitPlay() {
+        while (!played && !cancelled) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                cancelled = true;
+            }
+        }
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Hands over the loaded track, unless the load was cancelled first. Either the load is
+     * done or it's cancelled, never both, so a cancelled track is always closed.
+     *
+     * @param loaded the loaded track.
+     * @throws CancellationException if the load was cancelled.
+     */
+    private synchronized void finish(Track loaded) {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        progress = 1;
+        track = loaded;
+    }
+
+    /**
+     * Marks the track as chosen to race, so the load goes on to finish once the track itself
+     * is loaded.
+     */
+    public synchronized void play() {
+        played = true;
+        notifyAll();
+    }
+
+    /**
+     * Cancels the load. Does nothing if the load is already done.
+     */
+    public synchronized void cancel() {
+        if (!isDone()) {
+            cancelled = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Gets whether the loader's thread is still running. A cancelled load keeps running until
+     * it next reports its progress.
+     *
+     * @return whether the load is running.
+     */
+    public boolean isRunning() {
+        return thread.isAlive();
+    }
+
+    /**
+     * Gets whether the load was cancelled.
+     *
+     * @return whether the load was cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Gets whether the load is over: the track is ready, or the load failed (see getFailure()).
+     *
+     * @return whether the load is done.
+     */
+    public boolean isDone() {
+        return track != null || failure != null;
+    }
+
+    /**
+     * Gets what went wrong, if the load failed.
+     *
+     * @return the error that ended the load (or null, if it hasn't failed).
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Gets the loaded track.
+     *
+     * @return the track (or null, if it hasn't finished loading).
+     */
+    public Track getTrack() {
+        return track;
+    }
+
+    /**
+     * Gets the header of the track being loaded.
+     *
+     * @return the track's header.
+     */
+    public TrackInfo getInfo() {
+        return info;
+    }
+
+    /**
+     * Gets how far along the load is.
+     *
+     * @return how much of the load is done (0 to 1).
+     */
+    public double getProgress() {
+        return progress;
+    }
+
+    /**
+     * Gets what the load is doing now.
+     *
+     * @return a short description of the current stage.
+     */
+    public String getStage() {
+        return stage;
+    }
+}
@@ -4,8 +4,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.imageio.ImageIO;
-
 import java.awt.*;
 
 public class TrackMenu implements Menu {
@@ -15,7 +13,17 @@ public class TrackMenu implements Menu {
     private Rectangle[] cells;
     private Rectangle[] buttons;
     private String[] buttonsText;
-    private ArrayList<Track> tracks;
+    private ArrayList<TrackInfo> tracks;
+    // Previews are read the first time they're drawn.
+    private BufferedImage[] previews;
+    private TerrainTextures previewTextures;
+    // The track under the mouse is loaded ahead of time, in case it's played.
+    private TrackLoader preloader;
+    // The last load cancelled, which may still be winding down.
+    private TrackLoader cancelledLoader;
+    // The cell under the mouse (or -1), and since when (from System.nanoTime()).
+    private int hoveredIndex = -1;
+    private long hoverStart;
     private int selectedTrackIndex;
 
     private BufferedImage backgroundTexture;
@@ -35,6 +43,10 @@ public class TrackMenu implements Menu {
     private static final int CELL_PADDING = 20;
 
     private static final int COL_COUNT = 3;
+    // The longest side of a track preview. Previews are drawn smaller than this.
+    private static final int PREVIEW_SIZE = 256;
+    // How long the mouse must rest on a track before it's preloaded.
+    private static final long PRELOAD_DELAY_NANOS = 300_000_000;
 
     public TrackMenu(KeyInput key, MouseInput mouse) {
         this.key = key;
@@ -42,16 +54,17 @@ public class TrackMenu implements Menu {
         selectedTrackIndex = -1;
 
         try {
-            backgroundTexture = ImageIO.read(new File("textures/trackTex.png"));
+            backgroundTexture = TextureCache.acquire("textures/trackTex.png");
 
-            // Load tracks into the tracks array
+            // Read the headers of the tracks into the tracks array. The tracks themselves are only
+            // loaded when played.
             File trackDir = new File("tracks/");
             File[] trackList = trackDir.listFiles();
             if (trackList != null) {
                 tracks = new ArrayList<>();
                 for (int i = 0; i < trackList.length; i++) {
                     if (trackList[i].toString().endsWith(".track")) {
-                        tracks.add(new Track(trackList[i].toPath()));
+                        tracks.add(new TrackInfo(trackList[i].toPath()));
                     }
                 }
             }
@@ -62,6 +75,7 @@ public class TrackMenu implements Menu {
         }
         
         // Initializing elements of the track list screen.
+        previews = new BufferedImage[tracks.size()];
         cells = new Rectangle[tracks.size()];
         buttons = new Rectangle[tracks.size() + 1];
         buttonsText = new String[tracks.size() + 1];
@@ -118,6 +132,8 @@ public class TrackMenu implements Menu {
             }
         }
 
+        preloadHoveredTrack(mousePos);
+
         for (int i = 0; i < buttons.length; i++) {
             boolean hover = buttons[i].contains(mousePos);
             boolean click = mouseDown && hover;
@@ -129,7 +145,7 @@ public class TrackMenu implements Menu {
 
                 // Draw track preview
                 int previewHeight = CELL_HEIGHT - BUTTON_HEIGHT - CELL_PADDING * 3;
-                BufferedImage trackPreview = tracks.get(i).getTexturedTrack();
+                BufferedImage trackPreview = getPreview(i);
                 graphics.drawImage(
                     trackPreview, 
                     cells[i].x + CELL_PADDING, 
@@ -230,6 +246,86 @@ public class TrackMenu implements Menu {
         graphics.dispose();
     }
 
+    /**
+     * Starts loading the track under the mouse, if it isn't loading already. A load of any
+     * other track that hasn't finished is cancelled.
+     * 
+     * Only a track the mouse rests on is preloaded, and only once the last cancelled load has
+     * stopped, so sweeping across the menu never runs more than one load at a time (besides a
+     * track actually played).
+     * 
+     * @param mousePos the position of the mouse.
+     */
+    private void preloadHoveredTrack(Point mousePos) {
+        int hovered = -1;
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i].contains(mousePos)) {
+                hovered = i;
+                break;
+            }
+        }
+        long now = System.nanoTime();
+        if (hovered != hoveredIndex) {
+            hoveredIndex = hovered;
+            hoverStart = now;
+        }
+        if (hovered == -1 || now - hoverStart < PRELOAD_DELAY_NANOS) {
+            return;
+        }
+        if (cancelledLoader != null && cancelledLoader.isRunning()) {
+            return;
+        }
+        getLoader(hovered);
+    }
+
+    /**
+     * Gets a loader for a track, reusing the preloaded one if it's for the same track (and it
+     * hasn't failed, so a failed load is tried again).
+     * 
+     * @param index the index of the track.
+     * @return the track's loader.
+     */
+    private TrackLoader getLoader(int index) {
+        TrackInfo info = tracks.get(index);
+        if (preloader == null || preloader.isCancelled() || preloader.getFailure() != null ||
+        preloader.getInfo() != info) {
+            cancelPreload();
+            preloader = new TrackLoader(info);
+        }
+        return preloader;
+    }
+
+    /**
+     * Cancels the preload, if it hasn't finished.
+     */
+    private void cancelPreload() {
+        if (preloader != null && !preloader.isDone()) {
+            preloader.cancel();
+            cancelledLoader = preloader;
+        }
+    }
+
+    /**
+     * Gets the preview of a track, reading it the first time it's needed.
+     * 
+     * @param index the index of the track.
+     * @return the track's preview.
+     */
+    private BufferedImage getPreview(int index) {
+        if (previews[index] == null) {
+            try {
+                if (previewTextures == null) {
+                    previewTextures = new TerrainTextures();
+                }
+                previews[index] = tracks.get(index).readPreview(previewTextures, PREVIEW_SIZE);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                System.exit(-1);
+            }
+        }
+        return previews[index];
+    }
+
     @Override
     public boolean hasNextMenu() {
         // the last button in the array is the "back" button
@@ -251,15 +347,24 @@ public class TrackMenu implements Menu {
     }
 
     @Override
-    public Track getNewTrack() {
+    public TrackLoader getTrackLoader() {
         if (selectedTrackIndex != -1) {
-            return tracks.get(selectedTrackIndex);
+            TrackLoader loader = getLoader(selectedTrackIndex);
+            loader.play();
+            // The race owns the track from here, and closes it when it ends, so the loader
+            // can't be reused for another race.
+            preloader = null;
+            return loader;
         }
         return null;
     }
 
     @Override
     public Menu getNextMenu() {
+        // This menu is done with once the next one shows, along with any track it preloaded.
+        cancelPreload();
+        preloader = null;
+        TextureCache.release(backgroundTexture);
         return new MainMenu(key, mouse);
     }
 
@@ -0,0 +1,245 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The terrain grid of a track, split into square tiles and saved to disk, so parts of a big
+ * track can be read back without decoding the whole track image again.
+ *
+ * Tile files start with the magic string "TILE", a version byte, the last modified time (long)
+ * and size (long) of the track file they were made from, the track's width, height and
+ * checkpoint count (ints) and the tile size (int). The tiles follow row by row, each as one
+ * terrain class byte per pixel. Tiles on the right and bottom edges are padded out to the full
+ * tile size, so every tile is the same size and can be found without an index.
+ */
+public class TrackTileFile implements Closeable {
+
+    public static final String EXTENSION = ".tiles";
+    public static final String TILE_DIR = "tiles";
+
+    private static final char[] MAGIC = {'T', 'I', 'L', 'E'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 37;
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int checkpointCount;
+    private final int tileSize;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * Opens a tile file, checking that it was made from the current version of a track file.
+     *
+     * @param file the path to the tile file.
+     * @param track the path to the track file it was made from.
+     * @throws IOException if the file can't be read, isn't a valid tile file, or is older than
+     * the track file.
+     */
+    public TrackTileFile(Path file, Path track) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, 0);
+            header.flip();
+            for (char magic : MAGIC) {
+                if (header.get() != magic) {
+                    throw new IOException("The provided tile file is invalid.");
+                }
+            }
+            if (header.get() != VERSION) {
+                throw new IOException("The tiles were saved by a different version.");
+            }
+            if (header.getLong() != Files.getLastModifiedTime(track).toMillis() ||
+            header.getLong() != Files.size(track)) {
+                throw new IOException("The tiles were made from a different version of the track.");
+            }
+            width = header.getInt();
+            height = header.getInt();
+            checkpointCount = header.getInt();
+            tileSize = header.getInt();
+            if (width <= 0 || height <= 0 || tileSize <= 0) {
+                throw new IOException("The provided tile file is invalid.");
+            }
+            columns = (width + tileSize - 1) / tileSize;
+            rows = (height + tileSize - 1) / tileSize;
+            if (channel.size() != HEADER_SIZE + (long)columns * rows * tileSize * tileSize) {
+                throw new IOException("The provided tile file is incomplete.");
+            }
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Gets where a track's tile file is kept.
+     *
+     * @param trackId the ID of the track.
+     * @return the path to the tile file.
+     */
+    public static Path getDefaultPath(String trackId) {
+        return Paths.get(TILE_DIR, trackId.trim() + EXTENSION);
+    }
+
+    /**
+     * Writes a track's terrain grid to a tile file.
+     *
+     * @param file the path to the tile file.
+     * @param track the path to the track file the terrain grid was made from.
+     * @param terrainGrid the terrain grid, row by row.
+     * @param width the width of the track.
+     * @param height the height of the track.
+     * @param checkpointCount the number of checkpoints on the track.
+     * @throws IOException if the file can't be written.
+     */
+    public static void create(Path file, Path track, byte[] terrainGrid, int width, int height,
+    int checkpointCount) throws IOException {
+        int tileSize = TrackTiles.TILE_SIZE;
+        int columns = (width + tileSize - 1) / tileSize;
+        int rows = (height + tileSize - 1) / tileSize;
+
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            for (char magic : MAGIC) {
+                out.writeByte(magic);
+            }
+            out.writeByte(VERSION);
+            out.writeLong(Files.getLastModifiedTime(track).toMillis());
+            out.writeLong(Files.size(track));
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(checkpointCount);
+            out.writeInt(tileSize);
+
+            byte[] padding = new byte[tileSize];
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    int tileX = column * tileSize;
+                    int tileWidth = Math.min(tileSize, width - tileX);
+                    for (int y = row * tileSize; y < (row + 1) * tileSize; y++) {
+                        if (y < height) {
+                            out.write(terrainGrid, y * width + tileX, tileWidth);
+                            out.write(padding, 0, tileSize - tileWidth);
+                        } else {
+                            out.write(padding);
+                        }
+                    }
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads one tile of the terrain grid. Safe to call from several threads at once.
+     *
+     * @param column the column of the tile.
+     * @param row the row of the tile.
+     * @param terrain the array to read the tile into, row by row, at least the tile size
+     * squared long. Pixels past the edge of the track are grass.
+     * @throws IOException if the file can't be read.
+     */
+    public void readTile(int column, int row, byte[] terrain) throws IOException {
+        long position = HEADER_SIZE + ((long)row * columns + column) * tileSize * tileSize;
+        readFully(ByteBuffer.wrap(terrain, 0, tileSize * tileSize), position);
+    }
+
+    /**
+     * Reads the whole terrain grid.
+     *
+     * @return the terrain grid, row by row.
+     * @throws IOException if the file can't be read.
+     */
+    public byte[] readTerrainGrid() throws IOException {
+        byte[] terrainGrid = new byte[width * height];
+        byte[] tile = new byte[tileSize * tileSize];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                readTile(column, row, tile);
+                int tileX = column * tileSize;
+                int tileWidth = Math.min(tileSize, width - tileX);
+                int tileHeight = Math.min(tileSize, height - row * tileSize);
+                for (int y = 0; y < tileHeight; y++) {
+                    System.arraycopy(tile, y * tileSize, terrainGrid,
+                    (row * tileSize + y) * width + tileX, tileWidth);
+                }
+            }
+        }
+        return terrainGrid;
+    }
+
+    /**
+     * Fills a buffer from the file, starting at the given position.
+     *
+     * @param buffer the buffer to fill.
+     * @param position the position in the file to read from.
+     * @throws IOException if the file can't be read, or ends first.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("The provided tile file is incomplete.");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Gets the width of the track.
+     *
+     * @return the width, in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the track.
+     *
+     * @return the height, in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the number of checkpoints on the track.
+     *
+     * @return the checkpoint count.
+     */
+    public int getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * Gets the size of the tiles.
+     *
+     * @return the width and height of each tile, in pixels.
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
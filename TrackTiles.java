@@ -0,0 +1,133 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.stream.IntStream;
+
+/**
+ * A textured track split into square tiles, so drawing a view of it only touches the tiles in
+ * view, however big the track is.
+ *
+ * Tiles are opaque images in the screen's own format. Java2D keeps copies of images like these
+ * in video memory when it can, and restores them itself when that memory is lost, so drawing a
+ * tile is usually a fast copy on the graphics card.
+ */
+public class TrackTiles {
+
+    public static final int TILE_SIZE = 256;
+
+    private final int width;
+    private final int height;
+    private final int columns;
+    private final int rows;
+    // The tiles, row by row.
+    private final BufferedImage[] tiles;
+
+    /**
+     * Textures a track into tiles in the default screen's format.
+     *
+     * @param textures the textures to draw the track with.
+     * @param terrain the terrain classes of the track, row by row.
+     * @param width the width of the track.
+     * @param height the height of the track.
+     */
+    public TrackTiles(TerrainTextures textures, byte[] terrain, int width, int height) {
+        this(textures, terrain, width, height, getDefaultConfiguration());
+    }
+
+    /**
+     * Textures a track into tiles, one at a time, so the whole textured track is never held
+     * at once. Rows of tiles are textured in parallel.
+     *
+     * @param textures the textures to draw the track with.
+     * @param terrain the terrain classes of the track, row by row.
+     * @param width the width of the track.
+     * @param height the height of the track.
+     * @param config the configuration of the screen the tiles will be drawn to (or null, to use
+     * plain RGB images).
+     */
+    public TrackTiles(TerrainTextures textures, byte[] terrain, int width, int height,
+    GraphicsConfiguration config) {
+        this.width = width;
+        this.height = height;
+        columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        tiles = new BufferedImage[columns * rows];
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            for (int column = 0; column < columns; column++) {
+                int tileX = column * TILE_SIZE;
+                int tileY = row * TILE_SIZE;
+                int tileWidth = Math.min(TILE_SIZE, width - tileX);
+                int tileHeight = Math.min(TILE_SIZE, height - tileY);
+                BufferedImage textured = new BufferedImage(tileWidth, tileHeight,
+                BufferedImage.TYPE_INT_RGB);
+                int[] pixels = ((DataBufferInt)textured.getRaster().getDataBuffer()).getData();
+                textures.texture(terrain, tileY * width + tileX, width, tileX, tileY, tileWidth,
+                tileHeight, pixels, 0);
+                if (config == null) {
+                    tiles[row * columns + column] = textured;
+                    continue;
+                }
+                BufferedImage tile = config.createCompatibleImage(tileWidth, tileHeight,
+                Transparency.OPAQUE);
+                // Only draw to the tile through its graphics, so Java2D can keep managing it.
+                Graphics2D graphics = tile.createGraphics();
+                graphics.drawImage(textured, 0, 0, null);
+                graphics.dispose();
+                tiles[row * columns + column] = tile;
+            }
+        });
+    }
+
+    /**
+     * Gets the configuration of the default screen.
+     *
+     * @return the screen's graphics configuration (or null, if there's no screen).
+     */
+    public static GraphicsConfiguration getDefaultConfiguration() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+        .getDefaultConfiguration();
+    }
+
+    /**
+     * Draws the part of the track in view.
+     *
+     * @param buf the graphics to draw to.
+     * @param x the x-coordinate of the track to draw in the top-left corner.
+     * @param y the y-coordinate of the track to draw in the top-left corner.
+     * @param viewWidth the width of the view.
+     * @param viewHeight the height of the view.
+     */
+    public void draw(Graphics2D buf, int x, int y, int viewWidth, int viewHeight) {
+        int firstColumn = Math.max(0, Math.floorDiv(x, TILE_SIZE));
+        int lastColumn = Math.min(columns - 1, Math.floorDiv(x + viewWidth - 1, TILE_SIZE));
+        int firstRow = Math.max(0, Math.floorDiv(y, TILE_SIZE));
+        int lastRow = Math.min(rows - 1, Math.floorDiv(y + viewHeight - 1, TILE_SIZE));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                buf.drawImage(tiles[row * columns + column], column * TILE_SIZE - x,
+                row * TILE_SIZE - y, null);
+            }
+        }
+    }
+
+    /**
+     * Gets the width of the track.
+     *
+     * @return the width, in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the track.
+     *
+     * @return the height, in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,164 @@
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+
+/**
+ * Stores the vehicle's sprite and collision mask pre-rotated at a fixed number of angles, so
+ * drawing and collision checks only need to look up the nearest frame. Vehicles of the same
+ * shape can share one set of masks, each with its own sprites.
+ */
+public class VehicleAtlas {
+
+    public static final int DEFAULT_STEPS = 360;
+
+    private final int steps;
+    private final BufferedImage[] sprites;
+    private final int[] spriteOffsetX;
+    private final int[] spriteOffsetY;
+    private final CollisionMask[] masks;
+
+    /**
+     * Pre-rotates the given sprite and mask.
+     *
+     * @param sprite the image of the vehicle, facing right (or null, to only store masks).
+     * @param mask the binary collision mask of the vehicle, facing right.
+     * @param steps the number of rotations to store in a full circle.
+     */
+    public VehicleAtlas(BufferedImage sprite, BufferedImage mask, int steps) {
+        this(sprite, createMasks(mask, steps));
+    }
+
+    /**
+     * Pre-rotates the given sprite, sharing the masks of another atlas.
+     *
+     * @param sprite the image of the vehicle, facing right.
+     * @param maskAtlas the atlas to share masks (and rotations) with.
+     */
+    public VehicleAtlas(BufferedImage sprite, VehicleAtlas maskAtlas) {
+        this(sprite, maskAtlas.masks);
+    }
+
+    /**
+     * Pre-rotates the given sprite, at the same rotations as the given masks.
+     *
+     * @param sprite the image of the vehicle, facing right (or null, to only store masks).
+     * @param masks the collision mask of each frame.
+     */
+    private VehicleAtlas(BufferedImage sprite, CollisionMask[] masks) {
+        this.masks = masks;
+        steps = masks.length;
+        sprites = new BufferedImage[steps];
+        spriteOffsetX = new int[steps];
+        spriteOffsetY = new int[steps];
+        if (sprite == null) {
+            return;
+        }
+
+        for (int i = 0; i < steps; i++) {
+            AffineTransform spriteXform = getFrameTransform(sprite, i, steps);
+
+            // Crop the rotated sprite to the area it covers.
+            Rectangle region = spriteXform.createTransformedShape(
+                new Rectangle(0, 0, sprite.getWidth(), sprite.getHeight())).getBounds();
+            region.grow(1, 1);
+            BufferedImage frame = new BufferedImage(region.width, region.height,
+            BufferedImage.TYPE_INT_ARGB);
+            AffineTransform local = AffineTransform.getTranslateInstance(-region.x, -region.y);
+            local.concatenate(spriteXform);
+            Graphics2D graphics = frame.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+            RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawRenderedImage(sprite, local);
+            graphics.dispose();
+
+            sprites[i] = frame;
+            spriteOffsetX[i] = region.x;
+            spriteOffsetY[i] = region.y;
+        }
+    }
+
+    /**
+     * Rasterizes the mask at every rotation.
+     *
+     * @param mask the binary collision mask of the vehicle, facing right.
+     * @param steps the number of rotations to store in a full circle.
+     * @return the collision mask of each frame.
+     */
+    private static CollisionMask[] createMasks(BufferedImage mask, int steps) {
+        if (steps <= 0) {
+            throw new IllegalArgumentException("The atlas needs at least one rotation.");
+        }
+        CollisionMask[] masks = new CollisionMask[steps];
+        for (int i = 0; i < steps; i++) {
+            masks[i] = new CollisionMask(mask, getFrameTransform(mask, i, steps));
+        }
+        return masks;
+    }
+
+    /**
+     * Calculates the transform that rotates an image about its center, placing the center at
+     * the origin.
+     *
+     * @param image the image to rotate.
+     * @param frame the index of the frame.
+     * @param steps the number of rotations in a full circle.
+     * @return the transform of the frame.
+     */
+    private static AffineTransform getFrameTransform(BufferedImage image, int frame, int steps) {
+        AffineTransform xform = AffineTransform.getRotateInstance(-2 * Math.PI * frame / steps);
+        xform.concatenate(AffineTransform.getTranslateInstance(
+        -image.getWidth() / 2.0, -image.getHeight() / 2.0));
+        return xform;
+    }
+
+    /**
+     * Gets the number of rotations stored in a full circle.
+     *
+     * @return the number of frames.
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * Gets the index of the frame closest to the given rotation.
+     *
+     * @param rad the rotation, in radians.
+     * @return the index of the nearest frame.
+     */
+    public int getFrameIndex(double rad) {
+        return Math.floorMod(Math.round(rad / (2 * Math.PI) * steps), steps);
+    }
+
+    /**
+     * Gets the rotation of the given frame.
+     *
+     * @param frame the index of the frame.
+     * @return the rotation of the frame, in radians.
+     */
+    public double getFrameRotation(int frame) {
+        return 2 * Math.PI * frame / steps;
+    }
+
+    /**
+     * Gets the collision mask of the given frame.
+     *
+     * @param frame the index of the frame.
+     * @return the collision mask of the frame.
+     */
+    public CollisionMask getMask(int frame) {
+        return masks[frame];
+    }
+
+    /**
+     * Draws the given frame, centered on the given pixel.
+     *
+     * @param buf the Graphics2D object to draw on.
+     * @param frame the index of the frame.
+     * @param x the x-coordinate of the vehicle's center.
+     * @param y the y-coordinate of the vehicle's center.
+     */
+    public void drawFrame(Graphics2D buf, int frame, int x, int y) {
+        buf.drawImage(sprites[frame], x + spriteOffsetX[frame], y + spriteOffsetY[frame], null);
+    }
+}
@@ -0,0 +1,187 @@
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The shape of a vehicle: its image, collision masks and the other measurements the physics
+ * needs. Bodies don't change once created, so every vehicle of the same shape shares one.
+ */
+public class VehicleBody {
+
+    private static final String IMAGE_PATH = "textures/vehicle.png";
+    // Loaded bodies, by the number of atlas rotations.
+    private static final Map<Integer, VehicleBody> loaded = new HashMap<>();
+
+    private final BufferedImage image;
+    private final BufferedImage mask;
+    private final int pixelCount;
+    private final VehicleAtlas maskAtlas;
+    // Atlases of colored sprites already made, by color.
+    private final Map<Color, VehicleAtlas> spriteAtlases = new HashMap<>();
+    // Half the size of the box swept against the walls. The box sits a pixel inside the opaque
+    // part of the vehicle, so the sweep never reports a wall the pixel test would let it graze.
+    private double sweepHalfLength;
+    private double sweepHalfWidth;
+
+    /**
+     * Gets the body of the standard vehicle, loading it the first time it's needed.
+     * 
+     * @param atlasSteps the number of pre-rotated frames used for collisions.
+     * @return the vehicle body.
+     * @throws IOException if the vehicle image can't be read.
+     */
+    public static synchronized VehicleBody load(int atlasSteps) throws IOException {
+        VehicleBody body = loaded.get(atlasSteps);
+        if (body == null) {
+            // Bodies are kept for good, so the image is never released. Its pixels are read for
+            // the masks and colored sprites, so it's kept as decoded.
+            body = new VehicleBody(TextureCache.acquire(IMAGE_PATH, false), atlasSteps);
+            loaded.put(atlasSteps, body);
+        }
+        return body;
+    }
+
+    /**
+     * Creates the body of a vehicle from its image. Every opaque pixel is part of the vehicle.
+     * 
+     * @param image the image of the vehicle, facing right.
+     * @param atlasSteps the number of pre-rotated frames used for collisions.
+     */
+    public VehicleBody(BufferedImage image, int atlasSteps) {
+        this.image = image;
+        int count = 0;
+        mask = new BufferedImage(image.getWidth(), image.getHeight(),
+        BufferedImage.TYPE_BYTE_BINARY);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (new Color(image.getRGB(x, y), true).getAlpha() != 0) {
+                    mask.setRGB(x, y, Color.WHITE.getRGB());
+                    count++;
+                }
+            }
+        }
+        pixelCount = count;
+        fitSweepBox();
+        maskAtlas = new VehicleAtlas(null, mask, atlasSteps);
+    }
+
+    /**
+     * Finds the largest centered box that only covers opaque pixels of the vehicle, shrinking it
+     * evenly from the image's edges, and uses it (less a pixel) for swept collisions.
+     */
+    private void fitSweepBox() {
+        int width = mask.getWidth();
+        int height = mask.getHeight();
+        int inset = 0;
+        while (2 * inset < Math.min(width, height) && !isOpaqueBox(inset, inset, 
+        width - inset, height - inset)) {
+            inset++;
+        }
+        sweepHalfLength = Math.max(0, width / 2.0 - inset - 1);
+        sweepHalfWidth = Math.max(0, height / 2.0 - inset - 1);
+    }
+
+    /**
+     * Checks whether every pixel of the vehicle within the given box is opaque.
+     */
+    private boolean isOpaqueBox(int minX, int minY, int maxX, int maxY) {
+        for (int y = minY; y < maxY; y++) {
+            for (int x = minX; x < maxX; x++) {
+                if ((mask.getRGB(x, y) & 0xFFFFFF) == 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a copy of the vehicle's image with every red pixel replaced by the given color.
+     * 
+     * @param color the color of the vehicle.
+     * @return the colored image.
+     */
+    public BufferedImage createColoredImage(Color color) {
+        BufferedImage colored = new BufferedImage(image.getWidth(), image.getHeight(),
+        BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y);
+                colored.setRGB(x, y, rgb == Color.RED.getRGB() ? color.getRGB() : rgb);
+            }
+        }
+        return colored;
+    }
+
+    /**
+     * Gets an atlas of the vehicle's sprites in the given color, sharing this body's masks. The
+     * sprites are made the first time a color is needed, and shared after that.
+     * 
+     * @param color the color of the vehicle.
+     * @return the sprite atlas.
+     */
+    public synchronized VehicleAtlas getSpriteAtlas(Color color) {
+        VehicleAtlas atlas = spriteAtlases.get(color);
+        if (atlas == null) {
+            atlas = new VehicleAtlas(createColoredImage(color), maskAtlas);
+            spriteAtlases.put(color, atlas);
+        }
+        return atlas;
+    }
+
+    /**
+     * Gets the atlas holding the vehicle's collision mask at every rotation.
+     * 
+     * @return the mask atlas.
+     */
+    public VehicleAtlas getMaskAtlas() {
+        return maskAtlas;
+    }
+
+    /**
+     * Gets the number of pixels the vehicle covers.
+     * 
+     * @return the vehicle pixel count.
+     */
+    public int getPixelCount() {
+        return pixelCount;
+    }
+
+    /**
+     * Gets the length of the vehicle (the width of its image).
+     * 
+     * @return the vehicle length, in pixels.
+     */
+    public int getLength() {
+        return image.getWidth();
+    }
+
+    /**
+     * Gets the width of the vehicle (the height of its image).
+     * 
+     * @return the vehicle width, in pixels.
+     */
+    public int getWidth() {
+        return image.getHeight();
+    }
+
+    /**
+     * Gets half the length of the box swept against the walls.
+     * 
+     * @return the half length of the sweep box, in pixels.
+     */
+    public double getSweepHalfLength() {
+        return sweepHalfLength;
+    }
+
+    /**
+     * Gets half the width of the box swept against the walls.
+     * 
+     * @return the half width of the sweep box, in pixels.
+     */
+    public double getSweepHalfWidth() {
+        return sweepHalfWidth;
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * Chooses the controls of a vehicle on every physics tick, in place of a player (see
+ * VehicleFleet.setController()).
+ */
+public interface VehicleController {
+
+    /**
+     * Chooses the controls a vehicle holds for the next tick. Called on the thread running
+     * the tick, so a controller shouldn't be shared between vehicles.
+     *
+     * @param fleet the fleet of the vehicle.
+     * @param car the index of the vehicle.
+     * @return the packed input (see VehicleInput).
+     */
+    int getInput(VehicleFleet fleet, int car);
+}
@@ -0,0 +1,850 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The physics of many vehicles on one track, with every vehicle's state kept in primitive
+ * arrays (one slot per vehicle) so a tick runs through all of them in tight loops without
+ * allocating. Vehicles in a fleet share one body, and don't collide with each other.
+ *
+ * Ticks can be split across threads (see setParallelism()). Each vehicle only reads the track
+ * and writes its own slots, so the result is the same however the fleet is split.
+ *
+ * Vehicle wraps a fleet of one, so a single vehicle runs exactly the same physics.
+ */
+public class VehicleFleet {
+
+    // The physics runs in fixed steps at this rate, whatever the frame rate.
+    public static final int TICK_RATE = 240;
+    public static final long TICK_NANOS = 1_000_000_000L / TICK_RATE;
+    public static final double TICK_SECONDS = 1.0 / TICK_RATE;
+    // Most ticks run by one update. Any time beyond this is dropped, so a stall (or a breakpoint)
+    // doesn't leave the simulation trying to catch up.
+    private static final int MAX_TICKS_PER_UPDATE = TICK_RATE / 10;
+    // The frame rate that turning and drifting were tuned at, before the fixed timestep.
+    private static final double TUNED_RATE = 60;
+
+    // Maximum percent traction during drifts
+    private static final double DRIFT_PCT = 0.04;
+    // The traction applied each tick, giving the same drift as DRIFT_PCT applied each frame at
+    // the tuned frame rate.
+    private static final double DRIFT_PCT_PER_TICK =
+    1 - Math.pow(1 - DRIFT_PCT, TUNED_RATE / TICK_RATE);
+    // Represents the fraction of a second required to reach full turning speed.
+    // Larger values cause sharper turns.
+    private static final double TURN_SMOOTHING = 9;
+    // Minimum speed (in mph) required to take damage.
+    static final double MIN_DAMAGE_SPEED = 10;
+    // The multiplier for collision speed deducted from health.
+    static final double DAMAGE_MULTIPLIER = 1;
+    // The maximum health of the vehicle.
+    public static final double MAX_HEALTH = 100;
+    // The fraction of speed kept each tick spent sliding along a wall (17/18 per frame at the
+    // tuned frame rate).
+    static final double SLIDE_SPEED_PER_TICK = Math.pow(17 / 18.0, TUNED_RATE / TICK_RATE);
+    // Heal speed (in HP per second).
+    private static final double HEAL_SPEED = 50;
+
+    private static final double FT_LENGTH_CAR = 14.7;
+
+    // Each thread gets several partitions, so threads that finish early can take over the
+    // partitions of threads slowed down by collisions.
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private final VehicleBody body;
+    private final int capacity;
+    private int size;
+    private Track track;
+
+    // The stats of each vehicle.
+    private final double[] topSpeed;
+    private final double[] acceleration;
+    private final double[] handling;
+
+    // The state of each vehicle. Collision handling (see CollisionResolver) works on these
+    // directly, so they're shared within the package.
+    final double[] totVel;
+    final double[] xVel;
+    final double[] yVel;
+    final double[] xPos;
+    final double[] yPos;
+    final double[] rotVel;
+    final double[] rotation;
+    final double[] health;
+
+    // The pose before each vehicle's last movement.
+    final double[] xLastPos;
+    final double[] yLastPos;
+    final double[] lastRotation;
+
+    // The pose at the start of the latest tick, for drawing between ticks.
+    private final double[] xTickStartPos;
+    private final double[] yTickStartPos;
+    private final double[] tickStartRotation;
+
+    final boolean[] atRepairPit;
+    final int[] lastCheckpointReached;
+    private final boolean[] drifting;
+    private final boolean[] wasDrifting;
+    // Whether each vehicle has moved since its collisions were last handled.
+    final boolean[] collisionsPending;
+    // Whether each vehicle sits out ticks, such as once it finishes a race.
+    private final boolean[] parked;
+    // The controls held by each vehicle (see VehicleInput).
+    private final int[] inputs;
+    // The controller choosing each vehicle's controls every tick (or null, for none).
+    private final VehicleController[] controllers;
+    final FootprintScan[] footprints;
+
+    private final CollisionResolver resolver = new CollisionResolver();
+
+    // Parallel ticks. The pool is null while ticks run on the calling thread.
+    private ForkJoinPool pool;
+    private PartitionTask[] partitions;
+    private RecursiveAction parallelTick;
+
+    private VehicleTickListener tickListener;
+    private FleetTickListener tickEndListener;
+
+    private PhysicsClock clock = PhysicsClock.SYSTEM;
+    private boolean clockStarted = false;
+    private long lastClockTime;
+    // Time passed on the clock that hasn't been simulated yet.
+    private long unsimulatedNanos;
+    private long simulationTicks;
+
+    /**
+     * Creates an empty fleet.
+     *
+     * @param body the body shared by every vehicle of the fleet.
+     * @param capacity the most vehicles the fleet can hold.
+     */
+    public VehicleFleet(VehicleBody body, int capacity) {
+        this.body = body;
+        this.capacity = capacity;
+        topSpeed = new double[capacity];
+        acceleration = new double[capacity];
+        handling = new double[capacity];
+        totVel = new double[capacity];
+        xVel = new double[capacity];
+        yVel = new double[capacity];
+        xPos = new double[capacity];
+        yPos = new double[capacity];
+        rotVel = new double[capacity];
+        rotation = new double[capacity];
+        health = new double[capacity];
+        xLastPos = new double[capacity];
+        yLastPos = new double[capacity];
+        lastRotation = new double[capacity];
+        xTickStartPos = new double[capacity];
+        yTickStartPos = new double[capacity];
+        tickStartRotation = new double[capacity];
+        atRepairPit = new boolean[capacity];
+        lastCheckpointReached = new int[capacity];
+        drifting = new boolean[capacity];
+        wasDrifting = new boolean[capacity];
+        collisionsPending = new boolean[capacity];
+        parked = new boolean[capacity];
+        inputs = new int[capacity];
+        controllers = new VehicleController[capacity];
+        footprints = new FootprintScan[capacity];
+    }
+
+    /**
+     * Adds a vehicle to the fleet, at the origin with full health.
+     *
+     * @param topSpeed the top speed of the vehicle (in pixels/second)
+     * @param acceleration the acceleration of the vehicle (in pixels/second^2)
+     * @param handling the turning speed of the vehicle (in radians/second)
+     * @return the index of the new vehicle.
+     * @throws IllegalStateException if the fleet is full.
+     */
+    public int addVehicle(double topSpeed, double acceleration, double handling) {
+        if (size == capacity) {
+            throw new IllegalStateException("The fleet is full.");
+        }
+        int car = size++;
+        this.topSpeed[car] = topSpeed;
+        this.acceleration[car] = acceleration;
+        this.handling[car] = handling;
+        health[car] = MAX_HEALTH;
+        footprints[car] = new FootprintScan();
+        return car;
+    }
+
+    /**
+     * Gets the number of vehicles in the fleet.
+     *
+     * @return the vehicle count.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the body shared by every vehicle of the fleet.
+     *
+     * @return the vehicle body.
+     */
+    public VehicleBody getBody() {
+        return body;
+    }
+
+    /**
+     * Sets the track that every vehicle of the fleet is on.
+     *
+     * @param track the track that the vehicles are on.
+     */
+    public void setTrack(Track track) {
+        this.track = track;
+    }
+
+    /**
+     * Gets the track that the fleet is on.
+     *
+     * @return the current track.
+     */
+    public Track getTrack() {
+        return track;
+    }
+
+    /**
+     * Sets the controls a vehicle holds for the following ticks.
+     *
+     * @param car the index of the vehicle.
+     * @param input the controls (see VehicleInput).
+     */
+    public void setInput(int car, int input) {
+        inputs[car] = input;
+    }
+
+    /**
+     * Sets the controller that chooses a vehicle's controls every tick, overriding setInput().
+     *
+     * @param car the index of the vehicle.
+     * @param controller the controller (or null, to hold the controls last set).
+     */
+    public void setController(int car, VehicleController controller) {
+        controllers[car] = controller;
+    }
+
+    /**
+     * Parks a vehicle, so ticks leave it where it is, or lets it drive on again.
+     *
+     * @param car the index of the vehicle.
+     * @param parked whether the vehicle sits out ticks.
+     */
+    public void setParked(int car, boolean parked) {
+        this.parked[car] = parked;
+    }
+
+    /**
+     * Runs as many fixed physics ticks as the clock has advanced since the last update.
+     */
+    public void update() {
+        long now = clock.nanoTime();
+        if (!clockStarted) {
+            clockStarted = true;
+            lastClockTime = now;
+            return;
+        }
+        unsimulatedNanos += now - lastClockTime;
+        lastClockTime = now;
+
+        int ticks = 0;
+        while (unsimulatedNanos >= TICK_NANOS) {
+            if (ticks == MAX_TICKS_PER_UPDATE) {
+                unsimulatedNanos %= TICK_NANOS;
+                break;
+            }
+            tick();
+            unsimulatedNanos -= TICK_NANOS;
+            ticks++;
+        }
+    }
+
+    /**
+     * Runs a single physics tick for every vehicle, handling each vehicle's collisions after
+     * it moves.
+     */
+    public void tick() {
+        simulationTicks++;
+        if (pool == null) {
+            for (int car = 0; car < size; car++) {
+                tickVehicle(car, resolver);
+            }
+        } else {
+            // The tasks are created once, and reset to run again every tick.
+            for (PartitionTask partition : partitions) {
+                partition.reinitialize();
+            }
+            parallelTick.reinitialize();
+            pool.invoke(parallelTick);
+        }
+        if (tickEndListener != null) {
+            tickEndListener.tickEnded(simulationTicks - 1);
+        }
+    }
+
+    /**
+     * Sets the listener told about every vehicle's controls as each tick starts.
+     *
+     * @param listener the tick listener (or null, for none).
+     */
+    public void setTickListener(VehicleTickListener listener) {
+        tickListener = listener;
+    }
+
+    /**
+     * Sets the listener told when every vehicle has finished each tick. It runs however many
+     * ticks an update catches up on, so it sees every tick, not just the last of each frame.
+     *
+     * @param listener the tick end listener (or null, for none).
+     */
+    public void setTickEndListener(FleetTickListener listener) {
+        tickEndListener = listener;
+    }
+
+    /**
+     * Sets how many threads run each tick. With more than one thread, the fleet is split into
+     * equal partitions of vehicles, which a ForkJoinPool ticks in parallel.
+     *
+     * @param parallelism the number of threads (1 to tick on the calling thread).
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+        shutdown();
+        if (parallelism == 1) {
+            return;
+        }
+        pool = new ForkJoinPool(parallelism);
+        partitions = new PartitionTask[parallelism * PARTITIONS_PER_THREAD];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new PartitionTask(i);
+        }
+        parallelTick = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(partitions);
+            }
+        };
+    }
+
+    /**
+     * Gets how many threads run each tick.
+     *
+     * @return the parallelism of the fleet.
+     */
+    public int getParallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    /**
+     * Stops the threads of a parallel fleet. Ticks run on the calling thread afterwards.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+            partitions = null;
+            parallelTick = null;
+        }
+    }
+
+    /**
+     * Ticks one partition of the fleet, with its own collision resolver.
+     */
+    private class PartitionTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+        private final CollisionResolver resolver = new CollisionResolver();
+
+        /**
+         * Creates the task of a partition.
+         *
+         * @param index the index of the partition.
+         */
+        public PartitionTask(int index) {
+            this.index = index;
+        }
+
+        @Override
+        protected void compute() {
+            // Partitions split the vehicles evenly, by however many there are now.
+            int first = (int)((long)size * index / partitions.length);
+            int last = (int)((long)size * (index + 1) / partitions.length);
+            for (int car = first; car < last; car++) {
+                tickVehicle(car, resolver);
+            }
+        }
+    }
+
+    /**
+     * Runs a single physics tick for one vehicle, then handles its collisions.
+     *
+     * @param car the index of the vehicle.
+     * @param resolver the collision resolver to use.
+     */
+    private void tickVehicle(int car, CollisionResolver resolver) {
+        if (parked[car]) {
+            return;
+        }
+        if (controllers[car] != null) {
+            inputs[car] = controllers[car].getInput(this, car);
+        }
+        if (tickListener != null) {
+            tickListener.tickStarted(car, simulationTicks - 1, inputs[car]);
+        }
+        xTickStartPos[car] = xPos[car];
+        yTickStartPos[car] = yPos[car];
+        tickStartRotation[car] = rotation[car];
+        stepVehicle(car, TICK_SECONDS);
+        resolver.manageCollisions(this, car);
+    }
+
+    /**
+     * Moves a vehicle forward in time, following its controls.
+     *
+     * @param car the index of the vehicle.
+     * @param deltaSeconds the time to move forward, in seconds.
+     */
+    private void stepVehicle(int car, double deltaSeconds) {
+        int input = inputs[car];
+        boolean forward = (input & VehicleInput.FORWARD) != 0;
+        boolean reverse = (input & VehicleInput.REVERSE) != 0;
+        boolean brake = (input & VehicleInput.BRAKE) != 0;
+        boolean turnLeft = (input & VehicleInput.LEFT) != 0;
+        boolean turnRight = (input & VehicleInput.RIGHT) != 0;
+
+        if (atRepairPit[car] && health[car] != MAX_HEALTH) {
+            health[car] += HEAL_SPEED * deltaSeconds;
+            if (health[car] > MAX_HEALTH) {
+                health[car] = MAX_HEALTH;
+            }
+        }
+
+        double terrainSpeed = getTerrainSpeed(car);
+        if (terrainSpeed == 0) {
+            // If we can't move, don't bother updating vehicle.
+            return;
+        }
+
+        double totVel = this.totVel[car];
+        double xVel = this.xVel[car];
+        double yVel = this.yVel[car];
+        double rotVel = this.rotVel[car];
+        double rotation = this.rotation[car];
+
+        // Terrain impacts top speed by 100% and acceleration by 50%.
+        double currentTopSpeed = topSpeed[car] * terrainSpeed;
+        // No health will significantly hurt speed.
+        if (health[car] == 0) {
+            currentTopSpeed /= 2;
+        }
+        double currentAcceleration = acceleration[car] * (1 + terrainSpeed) / 2;
+
+        // Enable drift when both gas and brakes are applied.
+        boolean drifting = brake && (forward || reverse);
+        this.drifting[car] = drifting;
+        if (drifting) {
+            wasDrifting[car] = true;
+        }
+
+        lastRotation[car] = rotation;
+
+        // Manage turning speeds. If drifting, vehicle turns faster but more gradually.
+        double turnTopVel = handling[car] * (drifting ?
+        (1 + (totVel / currentTopSpeed)) / 2 :
+        (totVel / currentTopSpeed)) * deltaSeconds;
+        // Snappier turning at high speeds, smoother turning when slower or drifting.
+        double turnSmoothing = (drifting ? TURN_SMOOTHING / 2 : TURN_SMOOTHING) * terrainSpeed;
+        if (turnLeft && !turnRight) {
+            // Turn speed depends on how much time has gone by,
+            // predefined speed constants, and how fast the vehicle is already moving.
+            rotVel += turnTopVel * turnSmoothing * deltaSeconds;
+        } else if (turnRight && !turnLeft) {
+            rotVel -= turnTopVel * turnSmoothing * deltaSeconds;
+        } else {
+            // The turn speed is stored per tick, so scale the slowdown to match the tuned rate.
+            double rotDir = Math.signum(rotVel);
+            rotVel = Math.abs(rotVel) -
+            (handling[car] * turnSmoothing * deltaSeconds * deltaSeconds * TUNED_RATE);
+            if (rotVel < 0) {
+                rotVel = 0;
+            } else {
+                rotVel *= rotDir;
+            }
+        }
+
+        // Ensure turn speed doesn't exceed max handling value.
+        if (rotVel != 0) {
+            if (rotVel > Math.abs(turnTopVel)) {
+                rotVel = Math.abs(turnTopVel);
+            } else if (rotVel < -Math.abs(turnTopVel)) {
+                rotVel = -Math.abs(turnTopVel);
+            }
+        }
+        // Ensure rotation won't grow too large.
+        rotation += rotVel;
+        rotation %= 2 * Math.PI;
+
+        // Don't launch the car if only the brakes are applied after drift.
+        if (wasDrifting[car] && !drifting) {
+            if (!forward && !reverse) {
+                totVel = Math.sqrt(
+                Math.pow(Math.cos(rotation) * xVel, 2) +
+                Math.pow(Math.sin(rotation) * yVel, 2)
+                ) * Math.signum(totVel);
+            }
+            wasDrifting[car] = false;
+        }
+
+        // Manage acceleration.
+        if (forward || reverse) {
+            // Accelerate based on rotation and time passed since last update.
+            totVel += currentAcceleration * deltaSeconds * (forward ? 1 : -1);
+            if (totVel > currentTopSpeed) {
+                totVel = currentTopSpeed;
+            } else if (totVel < -currentTopSpeed/2) {
+                totVel = -currentTopSpeed/2;
+            }
+        } else {
+            int sigVel = (int)Math.signum(totVel);
+            double brakeSpeed = brake ? 2 : 0.5;
+            totVel -= currentAcceleration * deltaSeconds * brakeSpeed * sigVel;
+            if (sigVel != (int)Math.signum(totVel)) {
+                totVel = 0;
+            }
+        }
+
+        if (!drifting) {
+            xVel = Math.cos(rotation) * totVel;
+            yVel = Math.sin(rotation) * totVel;
+        } else {
+            xVel = xVel * (1 - DRIFT_PCT_PER_TICK) +
+            Math.cos(rotation) * totVel * DRIFT_PCT_PER_TICK;
+            yVel = yVel * (1 - DRIFT_PCT_PER_TICK) +
+            Math.sin(rotation) * totVel * DRIFT_PCT_PER_TICK;
+        }
+
+        xLastPos[car] = xPos[car];
+        yLastPos[car] = yPos[car];
+
+        xPos[car] += xVel * deltaSeconds;
+        yPos[car] -= yVel * deltaSeconds;
+
+        this.totVel[car] = totVel;
+        this.xVel[car] = xVel;
+        this.yVel[car] = yVel;
+        this.rotVel[car] = rotVel;
+        this.rotation[car] = rotation;
+        collisionsPending[car] = true;
+    }
+
+    /**
+     * Gets a speed multiplier based on the terrain beneath a vehicle.
+     *
+     * @param car the index of the vehicle.
+     * @return the terrain speed multiplier.
+     */
+    private double getTerrainSpeed(int car) {
+        FootprintScan scan = scanFootprint(car);
+
+        // Boosters affect speed by factor of 1.5, and grass by a factor of 1/2.5.
+        return (1.5 * scan.getBoostCount() + scan.getTrackCount() + scan.getGrassCount() / 2.5) /
+        body.getPixelCount();
+    }
+
+    /**
+     * Gets the collision mask of a vehicle's current rotation.
+     *
+     * @param car the index of the vehicle.
+     * @return the collision mask of the vehicle.
+     */
+    CollisionMask getCollisionMask(int car) {
+        VehicleAtlas masks = body.getMaskAtlas();
+        return masks.getMask(masks.getFrameIndex(rotation[car]));
+    }
+
+    /**
+     * Scans the terrain beneath a vehicle's current position. Repeated calls without moving
+     * reuse the previous scan.
+     *
+     * @param car the index of the vehicle.
+     * @return the scan of the vehicle's footprint.
+     */
+    FootprintScan scanFootprint(int car) {
+        CollisionMask mask = getCollisionMask(car);
+        footprints[car].scan(track, mask, getCenterX(car) + mask.getOffsetX(),
+        getCenterY(car) + mask.getOffsetY());
+        return footprints[car];
+    }
+
+    /**
+     * Gets the x-coordinate of the pixel a vehicle is centered on.
+     *
+     * @param car the index of the vehicle.
+     * @return the x-coordinate of the vehicle's center pixel.
+     */
+    int getCenterX(int car) {
+        return (int)Math.round(xPos[car]);
+    }
+
+    /**
+     * Gets the y-coordinate of the pixel a vehicle is centered on.
+     *
+     * @param car the index of the vehicle.
+     * @return the y-coordinate of the vehicle's center pixel.
+     */
+    int getCenterY(int car) {
+        return (int)Math.round(yPos[car]);
+    }
+
+    /**
+     * Sets the clock that drives the physics. The next update starts timing from the new clock
+     * without running any ticks.
+     *
+     * @param clock the physics clock.
+     */
+    public void setClock(PhysicsClock clock) {
+        this.clock = clock;
+        clockStarted = false;
+        unsimulatedNanos = 0;
+    }
+
+    /**
+     * Gets the number of physics ticks run so far.
+     *
+     * @return the simulation tick count.
+     */
+    public long getSimulationTicks() {
+        return simulationTicks;
+    }
+
+    /**
+     * Gets the time that vehicles are drawn at (see getDrawX()), between the start and end of
+     * the latest tick.
+     *
+     * @return the draw time, in ticks since the first tick started.
+     */
+    public double getDrawTicks() {
+        return simulationTicks == 0 ? 0 : simulationTicks - 1 + getTickFraction();
+    }
+
+    /**
+     * Gets how far the clock has moved between the latest tick and the next one.
+     *
+     * @return the fraction of a tick, from 0 to 1.
+     */
+    private double getTickFraction() {
+        return Math.min(1, unsimulatedNanos / (double)TICK_NANOS);
+    }
+
+    /**
+     * Gets the x-coordinate of a vehicle to draw, between the start and end of the latest tick.
+     *
+     * @param car the index of the vehicle.
+     * @return the interpolated x-coordinate of the center of the vehicle.
+     */
+    public double getDrawX(int car) {
+        return xTickStartPos[car] + (xPos[car] - xTickStartPos[car]) * getTickFraction();
+    }
+
+    /**
+     * Gets the y-coordinate of a vehicle to draw, between the start and end of the latest tick.
+     *
+     * @param car the index of the vehicle.
+     * @return the interpolated y-coordinate of the center of the vehicle.
+     */
+    public double getDrawY(int car) {
+        return yTickStartPos[car] + (yPos[car] - yTickStartPos[car]) * getTickFraction();
+    }
+
+    /**
+     * Gets the rotation of a vehicle to draw, between the start and end of the latest tick.
+     *
+     * @param car the index of the vehicle.
+     * @return the interpolated rotation, in radians.
+     */
+    public double getDrawRotation(int car) {
+        return tickStartRotation[car] +
+        getRotationChange(tickStartRotation[car], rotation[car]) * getTickFraction();
+    }
+
+    /**
+     * Gets the change between two rotations, turning the short way around when crossing
+     * between 360 and 0.
+     *
+     * @param from the first rotation, in radians.
+     * @param to the second rotation, in radians.
+     * @return the change in rotation, from -pi to pi.
+     */
+    static double getRotationChange(double from, double to) {
+        double rotChange = to - from;
+        if (rotChange < -Math.PI) {
+            rotChange += Math.PI * 2;
+        } else if (rotChange > Math.PI) {
+            rotChange -= Math.PI * 2;
+        }
+        return rotChange;
+    }
+
+    /**
+     * Gets the x-coordinate of a vehicle's center.
+     *
+     * @param car the index of the vehicle.
+     * @return the x-coordinate of the vehicle.
+     */
+    public double getX(int car) {
+        return xPos[car];
+    }
+
+    /**
+     * Gets the y-coordinate of a vehicle's center.
+     *
+     * @param car the index of the vehicle.
+     * @return the y-coordinate of the vehicle.
+     */
+    public double getY(int car) {
+        return yPos[car];
+    }
+
+    /**
+     * Gets the rotation of a vehicle.
+     *
+     * @param car the index of the vehicle.
+     * @return the rotation of the vehicle, in radians.
+     */
+    public double getRotation(int car) {
+        return rotation[car];
+    }
+
+    /**
+     * Sets the position of a vehicle, relative to its center.
+     *
+     * @param car the index of the vehicle.
+     * @param x the x-coordinate of the center of the vehicle.
+     * @param y the y-coordinate of the center of the vehicle.
+     */
+    public void setPosition(int car, double x, double y) {
+        xLastPos[car] = x;
+        yLastPos[car] = y;
+        xTickStartPos[car] = x;
+        yTickStartPos[car] = y;
+
+        xPos[car] = x;
+        yPos[car] = y;
+        collisionsPending[car] = true;
+    }
+
+    /**
+     * Moves a vehicle the given distance.
+     *
+     * @param car the index of the vehicle.
+     * @param x the distance to move along the x-axis.
+     * @param y the distance to move along the y-axis.
+     */
+    public void translate(int car, double x, double y) {
+        xLastPos[car] = xPos[car];
+        yLastPos[car] = yPos[car];
+
+        xPos[car] += x;
+        yPos[car] += y;
+        collisionsPending[car] = true;
+    }
+
+    /**
+     * Sets the rotation of a vehicle about its center.
+     *
+     * @param car the index of the vehicle.
+     * @param rad the angle of rotation, in radians.
+     */
+    public void setRotation(int car, double rad) {
+        rotation[car] = rad % (2 * Math.PI);
+        lastRotation[car] = rotation[car];
+        tickStartRotation[car] = rotation[car];
+        collisionsPending[car] = true;
+    }
+
+    /**
+     * Rotates a vehicle about its center.
+     *
+     * @param car the index of the vehicle.
+     * @param rad the angle of rotation, in radians.
+     */
+    public void rotate(int car, double rad) {
+        lastRotation[car] = rotation[car];
+        rotation[car] += rad;
+        rotation[car] %= 2 * Math.PI;
+        collisionsPending[car] = true;
+    }
+
+    /**
+     * Gets the total velocity of a vehicle.
+     *
+     * @param car the index of the vehicle.
+     * @return the velocity of the vehicle.
+     */
+    public double getVelocity(int car) {
+        return totVel[car];
+    }
+
+    /**
+     * Sets the velocity of a vehicle.
+     *
+     * @param car the index of the vehicle.
+     * @param velocity the velocity of the vehicle.
+     */
+    public void setVelocity(int car, double velocity) {
+        totVel[car] = velocity;
+    }
+
+    /**
+     * Gets the total speed of a vehicle in mph.
+     *
+     * @param car the index of the vehicle.
+     * @return the speed of the vehicle (in mph).
+     */
+    public double getSpeed(int car) {
+        double feetPerPixel = FT_LENGTH_CAR / body.getLength();
+        double feetPerSecond = feetPerPixel * Math.abs(totVel[car]);
+        // Return miles per hour
+        return feetPerSecond / 5280 * 3600;
+    }
+
+    /**
+     * Gets the health of a vehicle.
+     *
+     * @param car the index of the vehicle.
+     * @return the health of the vehicle.
+     */
+    public double getHealth(int car) {
+        return health[car];
+    }
+
+    /**
+     * Gets the last checkpoint that a vehicle has crossed.
+     *
+     * @param car the index of the vehicle.
+     * @return the last checkpoint reached.
+     */
+    public int getLastCheckpoint(int car) {
+        return lastCheckpointReached[car];
+    }
+
+    /**
+     * Gets the last change in movement of a vehicle.
+     *
+     * @param car the index of the vehicle.
+     * @param movement receives the movement {deltaX, deltaY, deltaRot}.
+     */
+    public void getLastMovement(int car, double[] movement) {
+        movement[0] = xPos[car] - xLastPos[car];
+        movement[1] = yPos[car] - yLastPos[car];
+        movement[2] = getRotationChange(lastRotation[car], rotation[car]);
+    }
+}
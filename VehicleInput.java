@@ -0,0 +1,72 @@
+/**
+ * The controls of a vehicle for one update, packed into the bits of an int.
+ */
+public class VehicleInput {
+
+    public static final int FORWARD = 1;
+    public static final int REVERSE = 2;
+    public static final int BRAKE = 4;
+    public static final int LEFT = 8;
+    public static final int RIGHT = 16;
+    public static final int NONE = 0;
+    // The number of bits used by packed inputs.
+    public static final int BITS = 5;
+
+    // The letter of each control in input scripts, in bit order.
+    private static final String KEYS = "FRBLT";
+
+    /**
+     * Packs the given controls.
+     * 
+     * @param forward whether the vehicle is accelerating.
+     * @param reverse whether the vehicle is accelerating in reverse.
+     * @param brake whether the vehicle is braking.
+     * @param turnLeft whether the vehicle is turning left.
+     * @param turnRight whether the vehicle is turning right.
+     * @return the packed input.
+     */
+    public static int pack(boolean forward, boolean reverse, boolean brake, boolean turnLeft,
+    boolean turnRight) {
+        return (forward ? FORWARD : 0) | (reverse ? REVERSE : 0) | (brake ? BRAKE : 0) |
+        (turnLeft ? LEFT : 0) | (turnRight ? RIGHT : 0);
+    }
+
+    /**
+     * Parses controls written as letters: F (forward), R (reverse), B (brake), L (left) and
+     * T (turn right). A dash means no controls.
+     * 
+     * @param keys the letters of the controls.
+     * @return the packed input.
+     * @throws IllegalArgumentException if a letter isn't a control.
+     */
+    public static int parse(String keys) {
+        int input = NONE;
+        if (keys.equals("-")) {
+            return input;
+        }
+        for (int i = 0; i < keys.length(); i++) {
+            int bit = KEYS.indexOf(Character.toUpperCase(keys.charAt(i)));
+            if (bit == -1) {
+                throw new IllegalArgumentException("Unknown control: " + keys.charAt(i));
+            }
+            input |= 1 << bit;
+        }
+        return input;
+    }
+
+    /**
+     * Writes the controls as letters, the reverse of parse().
+     * 
+     * @param input the packed input.
+     * @return the letters of the controls.
+     */
+    public static String format(int input) {
+        StringBuilder keys = new StringBuilder();
+        for (int bit = 0; bit < KEYS.length(); bit++) {
+            if ((input & (1 << bit)) != 0) {
+                keys.append(KEYS.charAt(bit));
+            }
+        }
+        return keys.length() == 0 ? "-" : keys.toString();
+    }
+}
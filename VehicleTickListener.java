@@ -0,0 +1,16 @@
+/**
+ * Receives the controls of every vehicle of a fleet as each physics tick starts (see
+ * VehicleFleet.setTickListener()).
+ */
+public interface VehicleTickListener {
+
+    /**
+     * Called before a vehicle moves in a tick, on the thread running the tick (so listeners of
+     * parallel fleets must be thread-safe).
+     *
+     * @param car the index of the vehicle in its fleet.
+     * @param tick the tick, counting from 0.
+     * @param input the controls the vehicle holds for the tick (see VehicleInput).
+     */
+    void tickStarted(int car, long tick, int input);
+}
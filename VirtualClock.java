@@ -0,0 +1,31 @@
+/**
+ * A clock that only moves when told to, for running the simulation faster (or slower) than
+ * real time.
+ */
+public class VirtualClock implements PhysicsClock {
+
+    private long time;
+
+    /**
+     * Moves the clock forward.
+     * 
+     * @param nanos the time to advance, in nanoseconds.
+     */
+    public void advance(long nanos) {
+        time += nanos;
+    }
+
+    /**
+     * Moves the clock forward by the given number of physics ticks.
+     * 
+     * @param ticks the number of ticks to advance.
+     */
+    public void advanceTicks(long ticks) {
+        time += ticks * VehicleFleet.TICK_NANOS;
+    }
+
+    @Override
+    public long nanoTime() {
+        return time;
+    }
+}
@@ -0,0 +1,229 @@
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * A signed distance field of the track's walls. Each pixel stores the distance to the nearest
+ * wall pixel (positive), or for wall pixels, the distance to the nearest open pixel (negative).
+ * Distances are stored in fixed point, in 1/SCALE of a pixel.
+ */
+public class WallDistanceField {
+
+    public static final int SCALE = 16;
+
+    private static final double INFINITY = 1e20;
+
+    // Held in a buffer, so a field saved in a compiled track can be used straight from the file.
+    private final ShortBuffer distances;
+    private final int width;
+    private final int height;
+
+    /**
+     * Computes the distance field of the given wall layer, a row at a time. Only the field
+     * itself is full-size: the vertical distances each row needs are found by sweeping down
+     * the columns as the rows go (see ColumnSweep).
+     *
+     * @param walls the wall layer (including the edge of the track).
+     * @param width the width of the track.
+     * @param height the height of the track.
+     */
+    public WallDistanceField(BitLayer walls, int width, int height) {
+        this.width = width;
+        this.height = height;
+        short[] packed = new short[width * height];
+
+        ColumnSweep wallSweep = new ColumnSweep(walls, false, width, height);
+        ColumnSweep openSweep = new ColumnSweep(walls, true, width, height);
+        // Doubles keep squared distances exact: floats lose them past 4096 pixels.
+        double[] line = new double[width];
+        double[] toWall = new double[width];
+        double[] toOpen = new double[width];
+        int[] parabolas = new int[width];
+        double[] bounds = new double[width + 1];
+        for (int y = 0; y < height; y++) {
+            wallSweep.nextRow(y, line);
+            transformLine(line, width, toWall, parabolas, bounds);
+            openSweep.nextRow(y, line);
+            transformLine(line, width, toOpen, parabolas, bounds);
+            for (int x = 0; x < width; x++) {
+                // Round towards the wall, so stored distances never overstate the clearance.
+                double distance = toWall[x] > 0 ? Math.sqrt(toWall[x]) : -Math.sqrt(toOpen[x]);
+                packed[y * width + x] = (short)Math.max(Short.MIN_VALUE,
+                Math.min(Short.MAX_VALUE, Math.floor(distance * SCALE)));
+            }
+        }
+        distances = ShortBuffer.wrap(packed);
+    }
+
+    /**
+     * Uses distances computed earlier (see write()).
+     *
+     * @param distances the distance of every pixel, row by row, in 1/SCALE of a pixel.
+     * @param width the width of the track.
+     * @param height the height of the track.
+     */
+    public WallDistanceField(ShortBuffer distances, int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.distances = distances;
+    }
+
+    /**
+     * Copies the stored distances into a buffer, row by row, in 1/SCALE of a pixel.
+     *
+     * @param out the buffer to write to, with room for every pixel.
+     */
+    public void write(ShortBuffer out) {
+        out.put(distances.duplicate().clear());
+    }
+
+    /**
+     * Sweeps down the columns of a layer a row at a time, finding each pixel's squared
+     * distance to the nearest pixel of a set in its column. This is the first, vertical pass of
+     * the exact euclidean distance transform; transformLine() along each row finishes it.
+     *
+     * Each column only keeps the nearest pixel of the set above the row and below it. Finding
+     * the next one below scans on from the last, so each column is only scanned once.
+     */
+    private static class ColumnSweep {
+
+        private final BitLayer walls;
+        private final boolean open;
+        private final int height;
+        // The last row of the set at or above the current row, by column (or -1, for none).
+        private final int[] above;
+        // The first row of the set at or below the current row, by column (or height, for
+        // none). Starts at -1, before the first row is searched.
+        private final int[] below;
+
+        /**
+         * Starts a sweep from the top row.
+         *
+         * @param walls the wall layer.
+         * @param open whether the set is the open pixels rather than the wall pixels.
+         * @param width the width of the track.
+         * @param height the height of the track.
+         */
+        private ColumnSweep(BitLayer walls, boolean open, int width, int height) {
+            this.walls = walls;
+            this.open = open;
+            this.height = height;
+            above = new int[width];
+            below = new int[width];
+            Arrays.fill(above, -1);
+            Arrays.fill(below, -1);
+        }
+
+        /**
+         * Moves the sweep on to the next row.
+         *
+         * @param y the row, one after the last.
+         * @param line receives the squared vertical distance of each pixel of the row
+         * (INFINITY where the column has none of the set).
+         */
+        private void nextRow(int y, double[] line) {
+            for (int x = 0; x < line.length; x++) {
+                if (below[x] < y) {
+                    int row = y;
+                    while (row < height && walls.get(x, row) == open) {
+                        row++;
+                    }
+                    below[x] = row;
+                }
+                if (below[x] == y) {
+                    above[x] = y;
+                }
+                double distance = INFINITY;
+                if (above[x] >= 0) {
+                    distance = (double)(y - above[x]) * (y - above[x]);
+                }
+                if (below[x] < height) {
+                    distance = Math.min(distance, (double)(below[x] - y) * (below[x] - y));
+                }
+                line[x] = distance;
+            }
+        }
+    }
+
+    /**
+     * The one dimensional squared distance transform (the lower envelope of parabolas rooted at
+     * each sample).
+     *
+     * @param f the sampled function.
+     * @param n the number of samples.
+     * @param d the transformed samples.
+     * @param v the locations of the parabolas in the envelope (scratch space).
+     * @param z the boundaries between parabolas in the envelope (scratch space).
+     */
+    private static void transformLine(double[] f, int n, double[] d, int[] v, double[] z) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = -INFINITY;
+        z[1] = INFINITY;
+        for (int q = 1; q < n; q++) {
+            double s = ((f[q] + (double)q * q) - (f[v[k]] + (double)v[k] * v[k])) /
+            (2.0 * q - 2.0 * v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = ((f[q] + (double)q * q) - (f[v[k]] + (double)v[k] * v[k])) /
+                (2.0 * q - 2.0 * v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = INFINITY;
+        }
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            d[q] = (double)(q - v[k]) * (q - v[k]) + f[v[k]];
+        }
+    }
+
+    /**
+     * Gets the signed distance from the given pixel to the nearest wall. Pixels outside the
+     * track use the nearest pixel on its edge.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the distance to the nearest wall, in pixels (negative inside walls).
+     */
+    public double getDistance(int x, int y) {
+        return getRawDistance(x, y) / (double)SCALE;
+    }
+
+    /**
+     * Gets the stored fixed point distance of the given pixel.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the distance to the nearest wall, in 1/SCALE of a pixel.
+     */
+    private int getRawDistance(int x, int y) {
+        x = Math.max(0, Math.min(width - 1, x));
+        y = Math.max(0, Math.min(height - 1, y));
+        return distances.get(y * width + x);
+    }
+
+    /**
+     * Calculates the direction away from the nearest wall at the given pixel, from the gradient
+     * of the distance field.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @param normal receives the unit normal {x, y}.
+     * @return whether the normal is defined (false if the field is flat at this pixel).
+     */
+    public boolean getNormal(int x, int y, double[] normal) {
+        double gradX = getRawDistance(x + 1, y) - getRawDistance(x - 1, y);
+        double gradY = getRawDistance(x, y + 1) - getRawDistance(x, y - 1);
+        double length = Math.sqrt(gradX * gradX + gradY * gradY);
+        if (length == 0) {
+            return false;
+        }
+        normal[0] = gradX / length;
+        normal[1] = gradY / length;
+        return true;
+    }
+}
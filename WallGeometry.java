@@ -0,0 +1,310 @@
+import java.util.Arrays;
+
+/**
+ * The track's walls as line segments, traced from the wall layer with marching squares and
+ * indexed in a bounding volume hierarchy. Used to test the area a vehicle sweeps through in a
+ * tick against the walls (see SweepQuery), so fast vehicles can't skip through thin walls
+ * between ticks.
+ */
+public class WallGeometry {
+
+    // Maximum segments stored in a leaf of the hierarchy.
+    private static final int LEAF_SIZE = 4;
+
+    // Segment endpoints {x1, y1, x2, y2}, in track coordinates. Sweeps (see SweepQuery) read
+    // the segments and the hierarchy directly, so they're shared within the package.
+    final float[] segments;
+    final int segmentCount;
+
+    // Hierarchy nodes. Bounds are {minX, minY, maxX, maxY}. Leaves hold nodeCount segments from
+    // nodeStart in segmentOrder; other nodes hold no segments, their first child in nodeStart,
+    // and the second child right after it.
+    float[] nodeBounds;
+    int[] nodeStart;
+    int[] nodeCount;
+    private int nodeTotal;
+    int[] segmentOrder;
+
+    /**
+     * Traces the walls of the given layer into segments and indexes them.
+     *
+     * @param walls the wall layer (including the edge of the track).
+     * @param width the width of the track.
+     * @param height the height of the track.
+     */
+    public WallGeometry(BitLayer walls, int width, int height) {
+        int[] cellSegments = traceContours(walls, width, height);
+        segments = mergeCollinear(cellSegments);
+        segmentCount = segments.length / 4;
+        buildHierarchy();
+    }
+
+    /**
+     * Gets the number of wall segments.
+     *
+     * @return the segment count.
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Runs marching squares over the wall layer, sampling at pixel centers (which sit on whole
+     * coordinates, as with vehicle positions). Points outside the track count as walls, so every
+     * contour is closed.
+     *
+     * @param walls the wall layer.
+     * @param width the width of the track.
+     * @param height the height of the track.
+     * @return the segments of each cell {x1, y1, x2, y2}, in doubled track coordinates.
+     */
+    private static int[] traceContours(BitLayer walls, int width, int height) {
+        int[] found = new int[1024];
+        int count = 0;
+        int[] edge = new int[8];
+        for (int y = -1; y < height; y++) {
+            for (int x = -1; x < width; x++) {
+                int cell = (isWall(walls, x, y, width, height) ? 8 : 0) |
+                (isWall(walls, x + 1, y, width, height) ? 4 : 0) |
+                (isWall(walls, x + 1, y + 1, width, height) ? 2 : 0) |
+                (isWall(walls, x, y + 1, width, height) ? 1 : 0);
+                if (cell == 0 || cell == 15) {
+                    continue;
+                }
+
+                // Midpoints of the cell's edges, doubled so they stay integers.
+                // Top, right, bottom and left.
+                edge[0] = 2 * x + 1;
+                edge[1] = 2 * y;
+                edge[2] = 2 * x + 2;
+                edge[3] = 2 * y + 1;
+                edge[4] = 2 * x + 1;
+                edge[5] = 2 * y + 2;
+                edge[6] = 2 * x;
+                edge[7] = 2 * y + 1;
+
+                int[] pairs = CELL_EDGES[cell];
+                for (int i = 0; i < pairs.length; i += 2) {
+                    if (count + 4 > found.length) {
+                        found = Arrays.copyOf(found, found.length * 2);
+                    }
+                    found[count++] = edge[pairs[i] * 2];
+                    found[count++] = edge[pairs[i] * 2 + 1];
+                    found[count++] = edge[pairs[i + 1] * 2];
+                    found[count++] = edge[pairs[i + 1] * 2 + 1];
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    // Pairs of edges (0 top, 1 right, 2 bottom, 3 left) joined in each marching squares case.
+    // Cases are indexed by wall corners: top left 8, top right 4, bottom right 2, bottom left 1.
+    private static final int[][] CELL_EDGES = {
+        {},
+        {3, 2},
+        {2, 1},
+        {3, 1},
+        {0, 1},
+        {3, 0, 2, 1},
+        {0, 2},
+        {3, 0},
+        {3, 0},
+        {0, 2},
+        {0, 1, 3, 2},
+        {0, 1},
+        {3, 1},
+        {2, 1},
+        {3, 2},
+        {}
+    };
+
+    /**
+     * Checks whether a sample point is a wall, treating points outside the track as walls.
+     */
+    private static boolean isWall(BitLayer walls, int x, int y, int width, int height) {
+        return x < 0 || y < 0 || x >= width || y >= height || walls.get(x, y);
+    }
+
+    /**
+     * Chains the cell segments into contours, and merges neighbouring segments that lie on the
+     * same line.
+     *
+     * @param cells the segments of each cell, in doubled track coordinates.
+     * @return the merged segments, in track coordinates.
+     */
+    private static float[] mergeCollinear(int[] cells) {
+        int count = cells.length / 4;
+
+        // Sort every endpoint by position, so endpoints shared by two segments end up together.
+        // Each entry packs the position, the segment and which end of the segment it is.
+        long[] ends = new long[count * 2];
+        for (int i = 0; i < count; i++) {
+            for (int end = 0; end < 2; end++) {
+                long key = ((long)(cells[i * 4 + end * 2] + 2) << 16) |
+                (cells[i * 4 + end * 2 + 1] + 2);
+                ends[i * 2 + end] = (key << 32) | ((long)i << 1) | end;
+            }
+        }
+        Arrays.sort(ends);
+
+        // Link each segment end to the segment end sharing its position.
+        int[] link = new int[count * 2];
+        Arrays.fill(link, -1);
+        for (int i = 0; i + 1 < ends.length; i++) {
+            if ((ends[i] >>> 32) == (ends[i + 1] >>> 32)) {
+                int a = (int)ends[i];
+                int b = (int)ends[i + 1];
+                link[a] = b;
+                link[b] = a;
+                i++;
+            }
+        }
+
+        float[] merged = new float[cells.length];
+        int mergedCount = 0;
+        boolean[] visited = new boolean[count];
+        for (int first = 0; first < count; first++) {
+            if (visited[first]) {
+                continue;
+            }
+            // Walk back to the start of the chain (or all the way around a closed loop).
+            int segment = first;
+            int end = 0;
+            while (link[segment * 2 + end] != -1) {
+                int next = link[segment * 2 + end];
+                segment = next >> 1;
+                end = 1 - (next & 1);
+                if (segment == first) {
+                    break;
+                }
+            }
+
+            // Walk forward, starting a new merged segment whenever the direction changes.
+            int startX = cells[segment * 4 + end * 2];
+            int startY = cells[segment * 4 + end * 2 + 1];
+            int runDX = 0;
+            int runDY = 0;
+            int lastX = startX;
+            int lastY = startY;
+            while (segment != -1 && !visited[segment]) {
+                visited[segment] = true;
+                int farEnd = 1 - end;
+                int nextX = cells[segment * 4 + farEnd * 2];
+                int nextY = cells[segment * 4 + farEnd * 2 + 1];
+                int dx = nextX - lastX;
+                int dy = nextY - lastY;
+                if ((runDX != 0 || runDY != 0) && runDX * dy - runDY * dx != 0) {
+                    merged[mergedCount++] = startX / 2f;
+                    merged[mergedCount++] = startY / 2f;
+                    merged[mergedCount++] = lastX / 2f;
+                    merged[mergedCount++] = lastY / 2f;
+                    startX = lastX;
+                    startY = lastY;
+                }
+                runDX = dx;
+                runDY = dy;
+                lastX = nextX;
+                lastY = nextY;
+
+                int next = link[segment * 2 + farEnd];
+                if (next == -1) {
+                    segment = -1;
+                } else {
+                    segment = next >> 1;
+                    end = next & 1;
+                }
+            }
+            merged[mergedCount++] = startX / 2f;
+            merged[mergedCount++] = startY / 2f;
+            merged[mergedCount++] = lastX / 2f;
+            merged[mergedCount++] = lastY / 2f;
+        }
+        return Arrays.copyOf(merged, mergedCount);
+    }
+
+    /**
+     * Builds the bounding volume hierarchy over the segments, splitting each node at the median
+     * of its longer axis.
+     */
+    private void buildHierarchy() {
+        segmentOrder = new int[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segmentOrder[i] = i;
+        }
+        int maxNodes = Math.max(1, 2 * segmentCount);
+        nodeBounds = new float[maxNodes * 4];
+        nodeStart = new int[maxNodes];
+        nodeCount = new int[maxNodes];
+        nodeTotal = 1;
+        buildNode(0, 0, segmentCount);
+    }
+
+    /**
+     * Builds the given node of the hierarchy from a range of the segment order.
+     */
+    private void buildNode(int node, int start, int count) {
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = start; i < start + count; i++) {
+            int s = segmentOrder[i] * 4;
+            minX = Math.min(minX, Math.min(segments[s], segments[s + 2]));
+            minY = Math.min(minY, Math.min(segments[s + 1], segments[s + 3]));
+            maxX = Math.max(maxX, Math.max(segments[s], segments[s + 2]));
+            maxY = Math.max(maxY, Math.max(segments[s + 1], segments[s + 3]));
+        }
+        nodeBounds[node * 4] = minX;
+        nodeBounds[node * 4 + 1] = minY;
+        nodeBounds[node * 4 + 2] = maxX;
+        nodeBounds[node * 4 + 3] = maxY;
+
+        if (count <= LEAF_SIZE) {
+            nodeStart[node] = start;
+            nodeCount[node] = count;
+            return;
+        }
+
+        // Sort the range by segment midpoint along the longer axis, then split it in half.
+        int axis = (maxX - minX) >= (maxY - minY) ? 0 : 1;
+        long[] keyed = new long[count];
+        for (int i = 0; i < count; i++) {
+            int s = segmentOrder[start + i] * 4;
+            float mid = segments[s + axis] + segments[s + 2 + axis];
+            keyed[i] = ((long)Float.floatToIntBits(mid + 1e6f) << 32) | segmentOrder[start + i];
+        }
+        Arrays.sort(keyed);
+        for (int i = 0; i < count; i++) {
+            segmentOrder[start + i] = (int)keyed[i];
+        }
+
+        int left = nodeTotal;
+        nodeTotal += 2;
+        nodeStart[node] = left;
+        nodeCount[node] = 0;
+        int half = count / 2;
+        buildNode(left, start, half);
+        buildNode(left + 1, start + half, count - half);
+    }
+
+    /**
+     * Calculates the normal of the given segment, pointing against the given direction.
+     *
+     * @param segment the index of the segment.
+     * @param dirX the x-component of the direction.
+     * @param dirY the y-component of the direction.
+     * @param normal receives the unit normal {x, y}.
+     */
+    public void getNormal(int segment, double dirX, double dirY, double[] normal) {
+        double dx = segments[segment * 4 + 2] - segments[segment * 4];
+        double dy = segments[segment * 4 + 3] - segments[segment * 4 + 1];
+        double length = Math.sqrt(dx * dx + dy * dy);
+        normal[0] = -dy / length;
+        normal[1] = dx / length;
+        if (normal[0] * dirX + normal[1] * dirY > 0) {
+            normal[0] = -normal[0];
+            normal[1] = -normal[1];
+        }
+    }
+}